@@ -0,0 +1,394 @@
+//
+//  Bitboard of one player's stones - whole board line and capture detection
+//
+
+package edu.ramapo.rpodziel.pente.model;
+
+import androidx.annotation.NonNull;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+public class BitBoard implements Serializable, Cloneable {
+    /* Class Constants */
+
+    // One bit per intersection, row major: cell = row * BOARD_SIZE + column
+    public static final int NUM_CELLS = Board.NUM_CELLS;
+    public static final int WORD_SIZE = Long.SIZE;
+    public static final int NUM_WORDS = (NUM_CELLS + WORD_SIZE - 1) / WORD_SIZE;
+    // Arrays of NUM_WORDS needed to count capture moves, see CountCaptureMoves
+    public static final int CAPTURE_SCRATCH_SIZE = 4;
+
+    // Number of bits to move one intersection in each direction, lock step with the deltas
+    private static final int[] CELL_OFFSET = new int[Board.NUM_DIRECTIONS];
+
+    // For each direction, the cells whose neighbour in that direction is still on the board.
+    // Shifting the words wraps stones from one row onto the next, masking clears them.
+    private static final long[][] SHIFT_MASKS = new long[Board.NUM_DIRECTIONS][NUM_WORDS];
+
+    // The directions along a row then along a column, used to grow an area
+    // one intersection in every direction, see FillNear
+    private static final int[] STRAIGHT_DIRECTIONS = new int[4];
+
+    static {
+        for (int direction = 0; direction < Board.NUM_DIRECTIONS; direction++) {
+            CELL_OFFSET[direction] = Board.ROW_DELTA[direction] * Board.BOARD_SIZE
+                    + Board.COLUMN_DELTA[direction];
+
+            for (int row = 0; row < Board.BOARD_SIZE; row++) {
+                for (int column = 0; column < Board.BOARD_SIZE; column++) {
+                    if (Board.IsValidIndex(row + Board.ROW_DELTA[direction],
+                            column + Board.COLUMN_DELTA[direction])) {
+                        int cell = row * Board.BOARD_SIZE + column;
+                        SHIFT_MASKS[direction][cell / WORD_SIZE] |= 1L << (cell % WORD_SIZE);
+                    }
+                }
+            }
+        }
+
+        int straight = 0;
+        for (int direction = 0; direction < Board.NUM_DIRECTIONS; direction++) {
+            if (Board.ROW_DELTA[direction] == 0) { STRAIGHT_DIRECTIONS[straight++] = direction; }
+        }
+        for (int direction = 0; direction < Board.NUM_DIRECTIONS; direction++) {
+            if (Board.COLUMN_DELTA[direction] == 0) { STRAIGHT_DIRECTIONS[straight++] = direction; }
+        }
+    }
+
+
+    /* Private Members */
+
+    private long[] m_words;
+
+
+    /* Constructors */
+
+    public BitBoard() {
+        m_words = new long[NUM_WORDS];
+    }
+
+
+    /* Accessors */
+
+    /**
+     * To check if there is a stone on a cell
+     * @param a_cell an integer. The cell index, row * BOARD_SIZE + column
+     * @return true if the bit for the cell is set, false otherwise
+     */
+    public boolean IsSet(int a_cell) {
+        return (m_words[a_cell / WORD_SIZE] & (1L << (a_cell % WORD_SIZE))) != 0;
+    }
+
+    /**
+     * To get the number of stones on the bitboard
+     * @return The number of bits set, an integer
+     */
+    public int GetCount() {
+        return PopCount(m_words);
+    }
+
+    /**
+     * To check if there are n or more stones in a row anywhere on the board
+     * @param a_n an integer. The number of stones in a row to look for
+     * @return true if any line of a_n stones exists, false otherwise
+     */
+    /*
+    Algorithm:
+        1) For each cardinal plane, AND the board with itself shifted 1 to n - 1 steps
+        2) Any bit left set starts a line of n stones
+     */
+    public boolean HasNInARow(int a_n) {
+        if (a_n < 1) {
+            return false;
+        }
+
+        long[] shifted = new long[NUM_WORDS];
+        long[] lines = new long[NUM_WORDS];
+        for (int direction = 0; direction < Board.NUM_DIRECTIONS / 2; direction++) {
+            System.arraycopy(m_words, 0, shifted, 0, NUM_WORDS);
+            System.arraycopy(m_words, 0, lines, 0, NUM_WORDS);
+            for (int step = 1; step < a_n; step++) {
+                Shift(shifted, direction, shifted);
+                And(lines, shifted);
+            }
+            if (!IsEmpty(lines)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * To get the number of lines of exactly n stones, i.e. not part of a
+     *     longer line, in each cardinal plane across the entire board
+     * @param a_n an integer. The number of stones in a row to look for
+     * @return The number of uninterrupted lines of exactly a_n stones, an integer
+     */
+    /*
+    Algorithm:
+        1) For each cardinal plane, find the stones with no stone behind them,
+            i.e. the start of a line
+        2) AND with the board shifted 1 to n - 1 steps, the line continues n stones
+        3) Clear those with a stone n steps out, the line is longer than n
+        4) Count the bits left, one bit per line
+     */
+    public int CountExactRuns(int a_n) {
+        int total = 0;
+        if (a_n < 1) {
+            return total;
+        }
+
+        final int PLANES = Board.NUM_DIRECTIONS / 2;
+        long[] shifted = new long[NUM_WORDS];
+        long[] lines = new long[NUM_WORDS];
+        for (int direction = 0; direction < PLANES; direction++) {
+            // Start of a line - no stone in the opposite direction
+            Shift(m_words, direction + PLANES, shifted);
+            for (int word = 0; word < NUM_WORDS; word++) {
+                lines[word] = m_words[word] & ~shifted[word];
+            }
+
+            System.arraycopy(m_words, 0, shifted, 0, NUM_WORDS);
+            for (int step = 1; step < a_n; step++) {
+                Shift(shifted, direction, shifted);
+                And(lines, shifted);
+            }
+            // Must not continue past n stones
+            Shift(shifted, direction, shifted);
+            for (int word = 0; word < NUM_WORDS; word++) {
+                lines[word] &= ~shifted[word];
+            }
+
+            total += PopCount(lines);
+        }
+        return total;
+    }
+
+
+    /* Mutators */
+
+    /**
+     * To set the bit for a cell, i.e. a stone was placed
+     * @param a_cell an integer. The cell index, row * BOARD_SIZE + column
+     */
+    public void Set(int a_cell) {
+        m_words[a_cell / WORD_SIZE] |= 1L << (a_cell % WORD_SIZE);
+    }
+
+    /**
+     * To clear the bit for a cell, i.e. a stone was removed
+     * @param a_cell an integer. The cell index, row * BOARD_SIZE + column
+     */
+    public void Clear(int a_cell) {
+        m_words[a_cell / WORD_SIZE] &= ~(1L << (a_cell % WORD_SIZE));
+    }
+
+    /**
+     * To remove every stone from the bitboard
+     */
+    public void ClearAll() {
+        for (int word = 0; word < NUM_WORDS; word++) {
+            m_words[word] = 0;
+        }
+    }
+
+
+    /* Main for Debug */
+    public static void main(String[] args) { }
+
+
+    /* Public Utility Functions */
+
+    /**
+     * To clone the bitboard, i.e. make a deep copy of the bitboard
+     * @return A deep copy of the bitboard object
+     */
+    @NonNull
+    @Override
+    public BitBoard clone() {
+        BitBoard copy = new BitBoard();
+        try { copy = (BitBoard) super.clone(); }
+        catch (CloneNotSupportedException ignored) {}
+
+        copy.m_words = this.m_words.clone();
+        return copy;
+    }
+
+    /**
+     * To get the number of empty intersections where a player could
+     *     capture a pair of the opponent's stones in a single move,
+     *     e.g. OBBW -> placing white on O captures
+     * @param a_own a BitBoard. The stones of the player to move
+     * @param a_other a BitBoard. The stones of the opponent
+     * @return The number of capturing intersections, an integer
+     */
+    /*
+    Algorithm:
+        1) Start with every empty intersection
+        2) For each direction, AND with the opponent shifted 1 to CAPTURE_NUM steps and
+            our own stones shifted one step past that
+        3) OR all directions together, count the bits
+     */
+    public static int CountCaptureMoves(final BitBoard a_own, final BitBoard a_other) {
+        return CountCaptureMoves(a_own, a_other, new long[CAPTURE_SCRATCH_SIZE][NUM_WORDS]);
+    }
+
+    /**
+     * To get the number of capturing intersections without allocating, see above
+     * @param a_own a BitBoard. The stones of the player to move
+     * @param a_other a BitBoard. The stones of the opponent
+     * @param a_scratch a long array of CAPTURE_SCRATCH_SIZE by NUM_WORDS. Overwritten
+     * @return The number of capturing intersections, an integer
+     */
+    public static int CountCaptureMoves(final BitBoard a_own, final BitBoard a_other, long[][] a_scratch) {
+        final long[] empty = a_scratch[0];
+        for (int word = 0; word < NUM_WORDS; word++) {
+            empty[word] = ~(a_own.m_words[word] | a_other.m_words[word]);
+        }
+
+        final long[] captures = a_scratch[1];
+        final long[] pattern = a_scratch[2];
+        final long[] shifted = a_scratch[3];
+        Arrays.fill(captures, 0);
+        for (int direction = 0; direction < Board.NUM_DIRECTIONS; direction++) {
+            System.arraycopy(empty, 0, pattern, 0, NUM_WORDS);
+
+            // Each shift moves one more step out from the empty intersection
+            System.arraycopy(a_other.m_words, 0, shifted, 0, NUM_WORDS);
+            for (int step = 1; step <= Board.CAPTURE_NUM; step++) {
+                Shift(shifted, direction, shifted);
+                And(pattern, shifted);
+            }
+
+            System.arraycopy(a_own.m_words, 0, shifted, 0, NUM_WORDS);
+            for (int step = 0; step <= Board.CAPTURE_NUM; step++) {
+                Shift(shifted, direction, shifted);
+            }
+            And(pattern, shifted);
+
+            for (int word = 0; word < NUM_WORDS; word++) {
+                captures[word] |= pattern[word];
+            }
+        }
+        return PopCount(captures);
+    }
+
+    /**
+     * To find the empty intersections within a distance of any stone,
+     *     i.e. where a sensible move could be made
+     * @param a_first a BitBoard. The stones of one player
+     * @param a_second a BitBoard. The stones of the other player
+     * @param a_distance an integer. How far away from a stone an intersection may be,
+     *           in steps in any direction
+     * @param a_near a long array of NUM_WORDS. Where to store the intersections found
+     * @param a_scratch a long array of NUM_WORDS. Scratch space
+     */
+    /*
+    Algorithm:
+        1) Start with every stone on the board
+        2) Grow by one step left and right, then up and down, a_distance times
+        3) Clear the stones themselves, leaving the empty intersections near them
+     */
+    public static void FillNear(final BitBoard a_first, final BitBoard a_second, int a_distance,
+                                long[] a_near, long[] a_scratch) {
+        for (int word = 0; word < NUM_WORDS; word++) {
+            a_near[word] = a_first.m_words[word] | a_second.m_words[word];
+        }
+
+        // Growing sideways then up and down reaches the diagonals as well, one step at a time
+        for (int step = 0; step < a_distance; step++) {
+            for (int direction : STRAIGHT_DIRECTIONS) {
+                Shift(a_near, direction, a_scratch);
+                for (int word = 0; word < NUM_WORDS; word++) {
+                    a_near[word] |= a_scratch[word];
+                }
+            }
+        }
+
+        for (int word = 0; word < NUM_WORDS; word++) {
+            a_near[word] &= ~(a_first.m_words[word] | a_second.m_words[word]);
+        }
+    }
+
+    /**
+     * To get the cells set on this bitboard that hold neither player's stone
+     * @param a_first a final BitBoard. The stones of one player
+     * @param a_second a final BitBoard. The stones of the other player
+     * @param a_dest a long array of NUM_WORDS. Where to store the cells
+     */
+    public void GetEmptyCells(final BitBoard a_first, final BitBoard a_second, long[] a_dest) {
+        for (int word = 0; word < NUM_WORDS; word++) {
+            a_dest[word] = m_words[word] & ~(a_first.m_words[word] | a_second.m_words[word]);
+        }
+    }
+
+
+    /* Private Utility Functions */
+
+    /**
+     * To shift a set of words one intersection in a direction. Each cell
+     *     takes the value of its neighbour in that direction, 0 if off the board
+     * @param a_source a long array. The words to shift
+     * @param a_direction an integer. The direction index, see Board.ROW_DELTA
+     * @param a_dest a long array. Where to store the result, can be a_source
+     */
+    private static void Shift(final long[] a_source, int a_direction, long[] a_dest) {
+        final int OFFSET = CELL_OFFSET[a_direction];
+        final long[] MASK = SHIFT_MASKS[a_direction];
+
+        if (OFFSET > 0) {
+            // Cell takes the bit OFFSET above it - shift words down, low word first
+            for (int word = 0; word < NUM_WORDS; word++) {
+                long carry = (word + 1 < NUM_WORDS) ? a_source[word + 1] << (WORD_SIZE - OFFSET) : 0;
+                a_dest[word] = ((a_source[word] >>> OFFSET) | carry) & MASK[word];
+            }
+        }
+        else {
+            // Cell takes the bit OFFSET below it - shift words up, high word first
+            final int SHIFT = -OFFSET;
+            for (int word = NUM_WORDS - 1; word >= 0; word--) {
+                long carry = (word > 0) ? a_source[word - 1] >>> (WORD_SIZE - SHIFT) : 0;
+                a_dest[word] = ((a_source[word] << SHIFT) | carry) & MASK[word];
+            }
+        }
+    }
+
+    /**
+     * To AND a set of words into another
+     * @param a_dest a long array. The words to AND into
+     * @param a_source a long array. The words to AND with
+     */
+    private static void And(long[] a_dest, final long[] a_source) {
+        for (int word = 0; word < NUM_WORDS; word++) {
+            a_dest[word] &= a_source[word];
+        }
+    }
+
+    /**
+     * To check if a set of words has no bits set
+     * @param a_words a long array. The words to check
+     * @return true if no bits are set, false otherwise
+     */
+    private static boolean IsEmpty(final long[] a_words) {
+        for (long word : a_words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * To count the bits set in a set of words
+     * @param a_words a long array. The words to count
+     * @return The number of bits set, an integer
+     */
+    private static int PopCount(final long[] a_words) {
+        int count = 0;
+        for (long word : a_words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+}
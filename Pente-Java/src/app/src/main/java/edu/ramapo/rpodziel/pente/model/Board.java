@@ -7,10 +7,10 @@ package edu.ramapo.rpodziel.pente.model;
 import androidx.annotation.NonNull;
 
 import java.io.Serializable;
-import java.util.Stack;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
 import java.util.Vector;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 
 public class Board implements Serializable, Cloneable {
@@ -39,16 +39,130 @@ public class Board implements Serializable, Cloneable {
 
     public static final String DEFAULT_LAST_POSITION = "";
 
+    // Intersections can also be referred to by a cell index, cell = row * BOARD_SIZE + column
+    public static final int NUM_CELLS = BOARD_SIZE * BOARD_SIZE;
+    public static final int NO_CELL = -1;
+
     public static final int WIN_SCORE = 5;
     public static final int CAPTURE_NUM = 2;
+    // Pairs a player must capture to win the round
+    public static final int CAPTURE_WIN = 5;
+
+    // Moves worth looking at are empty intersections at most this far from a stone
+    public static final int CANDIDATE_DISTANCE = 2;
+
+    // The board is stored as a flat array of squares, with a border of sentinel squares
+    // around the playable intersections. Walking in a direction is a single index add and
+    // will always hit the border before walking off the array - no bounds checks needed.
+    // Border must be wide enough for the longest fixed window we read around a stone.
+    static final int PADDING = WIN_SCORE - 1;
+    static final int PADDED_SIZE = BOARD_SIZE + 2 * PADDING;
+    static final int NUM_SQUARES = PADDED_SIZE * PADDED_SIZE;
+
+    // Index offset to step one intersection in each direction, lock step with the deltas
+    static final int[] DIRECTION_OFFSET = new int[NUM_DIRECTIONS];
+    static {
+        for (int direction = 0; direction < NUM_DIRECTIONS; direction++) {
+            DIRECTION_OFFSET[direction] = ROW_DELTA[direction] * PADDED_SIZE + COLUMN_DELTA[direction];
+        }
+    }
+
+    // What can be stored on a square - kept as bytes to avoid boxing on every read
+    static final byte EMPTY_SQUARE = 0;
+    static final byte WHITE_STONE = 1;
+    static final byte BLACK_STONE = 2;
+    static final byte BORDER_SQUARE = 3;
+
+    // Layout of the line runs filled by GetLineRuns, RUN_STRIDE values for each cardinal plane:
+    // same color stones in the forward and backward direction (not counting the stone itself),
+    // and 1 if the intersection just past each run is empty, i.e. the end is open
+    public static final int NUM_PLANES = NUM_DIRECTIONS / 2;
+    public static final int RUN_FORWARD = 0;
+    public static final int RUN_BACKWARD = 1;
+    public static final int OPEN_FORWARD = 2;
+    public static final int OPEN_BACKWARD = 3;
+    public static final int RUN_STRIDE = 4;
+    public static final int RUNS_SIZE = NUM_PLANES * RUN_STRIDE;
+
+    // A potential capture is found in a window of intersections centered on the stone,
+    // reaching CAPTURE_NUM + 1 out in each direction of a cardinal plane. Each intersection
+    // is packed into the window as its 2 bit stone code, furthest backward intersection first.
+    static final int CAPTURE_RADIUS = CAPTURE_NUM + 1;
+    static final int CAPTURE_WINDOW = 2 * CAPTURE_RADIUS + 1;
+    static final int STONE_BITS = 2;
+
+    // Square offsets of every intersection within CANDIDATE_DISTANCE steps of a square,
+    // in any direction, not counting the square itself. See m_nearCounts
+    static final int[] NEAR_OFFSETS = new int[(2 * CANDIDATE_DISTANCE + 1) * (2 * CANDIDATE_DISTANCE + 1) - 1];
+    static {
+        int offset = 0;
+        for (int row = -CANDIDATE_DISTANCE; row <= CANDIDATE_DISTANCE; row++) {
+            for (int column = -CANDIDATE_DISTANCE; column <= CANDIDATE_DISTANCE; column++) {
+                if (row != 0 || column != 0) {
+                    NEAR_OFFSETS[offset++] = row * PADDED_SIZE + column;
+                }
+            }
+        }
+    }
+
+    // Convert between squares of the padded board and cells of the bitboards,
+    // cell = row * BOARD_SIZE + column. Squares on the border have no cell (-1).
+    static final int[] CELL_TO_SQUARE = new int[NUM_CELLS];
+    static final int[] SQUARE_TO_CELL = new int[NUM_SQUARES];
+    static {
+        Arrays.fill(SQUARE_TO_CELL, -1);
+        for (int row = 0; row < BOARD_SIZE; row++) {
+            for (int column = 0; column < BOARD_SIZE; column++) {
+                int cell = row * BOARD_SIZE + column;
+                CELL_TO_SQUARE[cell] = ToSquare(row, column);
+                SQUARE_TO_CELL[CELL_TO_SQUARE[cell]] = cell;
+            }
+        }
+    }
+
+    // Position string of every cell, e.g. "J10", made once so no move needs to build one
+    private static final String[] POSITION_STRINGS = new String[NUM_CELLS];
+    static {
+        for (int cell = 0; cell < NUM_CELLS; cell++) {
+            int row = cell / BOARD_SIZE; int column = cell % BOARD_SIZE;
+            POSITION_STRINGS[cell] = ((char) (column + COLUMN_OFFSET) + Integer.toString(row + ROW_OFFSET)).intern();
+        }
+    }
+
+    // For each player, 1 if placing their stone in the middle of a packed window
+    // leaves a pair that could be captured next ply, 0 otherwise. See GetPotentialCaptures
+    private static final byte[][] CAPTURE_THREATS =
+            new byte[BLACK_STONE + 1][1 << (STONE_BITS * CAPTURE_WINDOW)];
+    static {
+        for (byte stone = WHITE_STONE; stone <= BLACK_STONE; stone++) {
+            for (int window = 0; window < CAPTURE_THREATS[stone].length; window++) {
+                CAPTURE_THREATS[stone][window] = IsCaptureThreat(stone, window) ? (byte) 1 : 0;
+            }
+        }
+    }
+
 
+    // Each made move is packed into a single int of the undo history:
+    // the cell, then the directions captured in, wins and pairs captured by the move
+    private static final int RECORD_CELL_BITS = 9;
+    private static final int RECORD_DIRECTION_BITS = NUM_DIRECTIONS;
+    private static final int RECORD_WIN_BITS = 3;
+    private static final int RECORD_CELL_MASK = (1 << RECORD_CELL_BITS) - 1;
+    private static final int RECORD_DIRECTION_MASK = (1 << RECORD_DIRECTION_BITS) - 1;
+    private static final int RECORD_WIN_MASK = (1 << RECORD_WIN_BITS) - 1;
+    private static final int RECORD_DIRECTION_SHIFT = RECORD_CELL_BITS;
+    private static final int RECORD_WIN_SHIFT = RECORD_DIRECTION_SHIFT + RECORD_DIRECTION_BITS;
+    private static final int RECORD_PAIRS_SHIFT = RECORD_WIN_SHIFT + RECORD_WIN_BITS;
+    // Enough for a full board without growing, captures can make a round longer
+    private static final int DEFAULT_HISTORY_SIZE = NUM_CELLS;
 
     // Move 'struct' to store all information about a move
-    // Really used to store information about the last move, and be able to undo it
+    // Really used to store information about the last move, the stack of previous
+    // moves keeps what is needed to undo it
     // Very helpful for the computer strategy
     private static class Move implements Serializable{
-        // Position placed by last move
-        public String position;
+        // Cell placed by last move
+        public int cell;
 
         // Piece restriction, used to restrict where a player can place a piece
         public int innerBounds;
@@ -59,17 +173,17 @@ public class Board implements Serializable, Cloneable {
         public int winInARow;
 
         public int intersectLeft;
-        public Vector<String> prevSeqs;
+        // Bit set for each direction a pair was captured in, so captures can be undone
+        public int capturedDirections;
 
         public Move() {
-            position = DEFAULT_LAST_POSITION;
+            cell = NO_CELL;
             innerBounds = BOARD_SIZE - BOARD_SIZE;
             outerBounds = BOARD_SIZE;
             capturedPairs = DEFAULT_SCORES;
             winInARow = DEFAULT_SCORES;
             intersectLeft = BOARD_SIZE * BOARD_SIZE;
-            prevSeqs = new Vector<String>();
-            prevSeqs.setSize(NUM_DIRECTIONS);
+            capturedDirections = 0;
         }
 
         /**
@@ -82,16 +196,14 @@ public class Board implements Serializable, Cloneable {
             Move copy = new Move();
             try { copy = (Move) super.clone(); }
             catch (CloneNotSupportedException e) {
-                copy.position = this.position;
+                copy.cell = this.cell;
                 copy.innerBounds = this.innerBounds;
                 copy.outerBounds = this.outerBounds;
                 copy.capturedPairs = this.capturedPairs;
                 copy.winInARow = this.winInARow;
                 copy.intersectLeft = this.intersectLeft;
+                copy.capturedDirections = this.capturedDirections;
             }
-            // Create a deep copy of the vector of the previous sequences
-            copy.prevSeqs = (Vector<String>)this.prevSeqs.clone();
-
             return copy;
         }
     }
@@ -105,25 +217,106 @@ public class Board implements Serializable, Cloneable {
         public PositionPair() {}
     }
 
+    // Walks the bits of a set of words, lowest cell first, see GetCandidateIterator
+    private static final class CandidateIterator implements PrimitiveIterator.OfInt {
+        private final long[] m_words;
+        private int m_word;
 
-    /* Private members */
+        CandidateIterator(long[] a_words) {
+            m_words = a_words;
+            m_word = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (m_word < m_words.length && m_words[m_word] == 0) {
+                m_word++;
+            }
+            return m_word < m_words.length;
+        }
+
+        @Override
+        public int nextInt() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            long bits = m_words[m_word];
+            m_words[m_word] = bits & (bits - 1);
+            return m_word * BitBoard.WORD_SIZE + Long.numberOfTrailingZeros(bits);
+        }
+    }
 
-    // 2D vector representing square game board depending on m_boardSize,
-    // each element is the color symbol of a player, e.g. "W" for white
-    private Vector<Vector<Character>> m_gameBoard;
 
-    // The stack of all moves made by players,
-    private Stack<Move> m_prevMoves;
+    /* Private members */
+
+    // Padded square game board, see PADDED_SIZE. Each element is the stone code
+    // on the square, e.g. WHITE_STONE for white or BORDER_SQUARE if off the board
+    private byte[] m_squares;
+
+    // The same stones as m_squares, one bitboard per player for whole board checks
+    private BitBoard m_whiteStones;
+    private BitBoard m_blackStones;
+
+    // Zobrist key of the position, kept up to date on every change to the board
+    // so a position can be identified without looking at every square
+    private long m_zobristKey;
+    // Stone code of the player to move next
+    private byte m_nextStone;
+    // Total pairs captured by each player this round, indexed by stone code
+    private int[] m_capturedTotals;
+    // Windows of WIN_SCORE intersections holding only one player's stones, indexed by
+    // stone code then the number of stones. Kept up to date on every change to a square
+    private int[][] m_lineCounts;
+
+    // Scratch buffer for the line runs, so checking a move allocates nothing
+    private int[] m_lineRuns;
+    // Stones within CANDIDATE_DISTANCE of each square, and the cells where that is
+    // more than 0. Kept up to date on every change to a square, see UpdateNearCells
+    private byte[] m_nearCounts;
+    private BitBoard m_nearCells;
+    // Scratch buffer for the candidate cells, see GetCandidateCells
+    private long[] m_candidateWords;
+    // Scratch buffers for counting capture moves, see GetCaptureMoves
+    private long[][] m_captureScratch;
+
+    // The stack of all moves made by players, one packed record per move,
+    // see RECORD_CELL_BITS. Moves are undone from the records alone, no objects needed
+    private int[] m_prevMoves;
+    private int m_numPrevMoves;
 
     // Current move made by player
     private Move m_currMove;
 
+    // Changes on every move, undo or restriction change, so readers know if what they have is current
+    private long m_version;
+    // Last snapshot made, reused until the board changes
+    private transient BoardSnapshot m_snapshot;
+
+    // If the squares, bitboards and previous moves may be shared with a clone.
+    // Clones share them until one of the boards changes, then it makes its own copy
+    private boolean m_shared;
+
 
     /* Constructors */
     public Board() {
         InitGameBoard();
-        m_prevMoves = new Stack<Move>();
+        m_whiteStones = new BitBoard();
+        m_blackStones = new BitBoard();
+        m_prevMoves = new int[DEFAULT_HISTORY_SIZE];
+        m_numPrevMoves = 0;
         m_currMove = new Move();
+
+        m_nextStone = WHITE_STONE;
+        m_capturedTotals = new int[BLACK_STONE + 1];
+        m_zobristKey = ComputeZobristKey();
+        ResetLineCounts();
+        ResetNearCells();
+        m_lineRuns = new int[RUNS_SIZE];
+        m_candidateWords = new long[BitBoard.NUM_WORDS];
+        m_captureScratch = new long[BitBoard.CAPTURE_SCRATCH_SIZE][BitBoard.NUM_WORDS];
+        m_shared = false;
+        m_version = 0;
+        m_snapshot = null;
     }
 
 
@@ -139,7 +332,7 @@ public class Board implements Serializable, Cloneable {
         for (int i = 0; i < BOARD_SIZE; ++i) {
             gameBoardCopy.add(new Vector<Character>());
             for (int j = 0; j < BOARD_SIZE; ++j) {
-                gameBoardCopy.get(i).add(m_gameBoard.get(i).get(j));
+                gameBoardCopy.get(i).add(ToPiece(m_squares[ToSquare(i, j)]));
             }
         }
         return gameBoardCopy;
@@ -183,6 +376,19 @@ public class Board implements Serializable, Cloneable {
         return m_currMove.winInARow > 0;
     }
 
+    /**
+     * To see if the last move won the round for the player who made it,
+     *     either by stones in a row or by capturing enough pairs
+     * @return True if the last move won the round, false otherwise
+     */
+    public boolean IsWinningMove() {
+        if (m_currMove.cell == NO_CELL) {
+            return false;
+        }
+        byte stone = m_squares[CELL_TO_SQUARE[m_currMove.cell]];
+        return m_currMove.winInARow > 0 || m_capturedTotals[stone] >= CAPTURE_WIN;
+    }
+
     /**
      * To get the number of spaces left on the board
      * @return the number of spaces left on the board, an integer
@@ -214,7 +420,107 @@ public class Board implements Serializable, Cloneable {
      * @return the last position placed by the player, a string
      */
     public String GetLastPosition() {
-        return m_currMove.position;
+        return CellToPosition(m_currMove.cell);
+    }
+
+    /**
+     * To get the cell of the last stone placed by the player
+     * @return the cell index of the last stone placed, NO_CELL if there is none
+     */
+    public int GetLastIndex() {
+        return m_currMove.cell;
+    }
+
+    /**
+     * To get the version of the board, changes on every move, undo or bounds change
+     * @return The version, a long
+     */
+    public long GetVersion() {
+        return m_version;
+    }
+
+    /**
+     * To get an immutable snapshot of the board, to hand off to other threads
+     *     without cloning. The same snapshot is returned until the board changes.
+     * @return The snapshot of the board as it is now, a BoardSnapshot object
+     */
+    /*
+    Algorithm:
+        1) If the last snapshot was taken at the current version, reuse it
+        2) Otherwise copy the stone on every cell into a new snapshot
+     */
+    public BoardSnapshot GetSnapshot() {
+        BoardSnapshot snapshot = m_snapshot;
+        if (snapshot != null && snapshot.GetVersion() == m_version) {
+            return snapshot;
+        }
+
+        byte[] stones = new byte[NUM_CELLS];
+        for (int cell = 0; cell < NUM_CELLS; cell++) {
+            stones[cell] = m_squares[CELL_TO_SQUARE[cell]];
+        }
+        snapshot = new BoardSnapshot(stones, m_version, m_currMove.innerBounds,
+                m_currMove.outerBounds, m_currMove.cell);
+        m_snapshot = snapshot;
+        return snapshot;
+    }
+
+    /**
+     * To check if a stone can be placed on a cell, i.e. the cell is
+     *     empty, within the bounds restriction and the game is not over
+     * @param a_cell an integer. The cell index, row * BOARD_SIZE + column
+     * @return true if a stone can be placed on the cell, false otherwise
+     */
+    public boolean IsLegal(int a_cell) {
+        return CheckPlacement(a_cell) == Codes.ReturnCode.SUCCESS;
+    }
+
+    /**
+     * To get the Zobrist key of the position, i.e. a 64 bit hash of the
+     *     stones, the player to move, the captured pairs and the bounds restriction
+     * @return The Zobrist key of the current position, a long
+     */
+    public long GetZobristKey() {
+        return m_zobristKey;
+    }
+
+    /**
+     * To get the Zobrist key the position would have with every stone moved to
+     *     another cell, e.g. the board rotated or reflected
+     * @param a_cellMap a final integer array of NUM_CELLS. The cell each cell's stone moves to,
+     *     no two cells may move to the same cell
+     * @return The Zobrist key of the moved position, a long
+     */
+    long GetTransformedKey(final int[] a_cellMap) {
+        long key = m_zobristKey;
+        for (int cell = 0; cell < NUM_CELLS; cell++) {
+            byte stone = m_squares[CELL_TO_SQUARE[cell]];
+            if (stone == WHITE_STONE || stone == BLACK_STONE) {
+                key ^= Zobrist.STONE_KEYS[stone][cell] ^ Zobrist.STONE_KEYS[stone][a_cellMap[cell]];
+            }
+        }
+        return key;
+    }
+
+    /**
+     * To get the color of the player who moves next
+     * @return The color of the next player, a character
+     */
+    public char GetNextColor() {
+        return ToPiece(m_nextStone);
+    }
+
+    /**
+     * To get the total amount of pairs a player has captured this round
+     * @param a_color a character. The color of the player
+     * @return The number of pairs captured, 0 if not a player's color
+     */
+    public int GetTotalCapturedPairs(char a_color) {
+        byte stone = ToStone(a_color);
+        if (stone != WHITE_STONE && stone != BLACK_STONE) {
+            return 0;
+        }
+        return m_capturedTotals[stone];
     }
 
     /* Mutators */
@@ -232,20 +538,9 @@ public class Board implements Serializable, Cloneable {
         1) Parse our position to get usable indices, if we can't parse
          we cannot place a stone
         2) Ensure that the position is within the board
-        3) Check if there are any restrictions on where the stone can be placed
-        4) Ensure there are no stones already placed on the intersection
-        5) If there already winner or board is full, we cannot place a stone
-          as game is over
-        6) Update the board based on the move, checking for wins, captures, etc.
-        7) Store the move for later use, if we need to undo at a later time
+        3) Place the stone on the cell the position refers to, see PlaceStone(char, int)
      */
     public Codes.ReturnCode PlaceStone(char a_color, final String a_position) {
-        // We could put the guard clauses to protect against invalid moves in its
-        // own separate function to keep the logic separated from the returns.
-        // But if this function ever were to be modified, it would be unclear and
-        // disjointed to have the guard clauses somewhere else - in terms of modifying
-        // the logic or the guard clauses.
-
         // Parse the position to get the row and column index
         PositionPair rawPosition = new PositionPair();
         // Need to be able to parse the position into valid row and column indices
@@ -258,38 +553,52 @@ public class Board implements Serializable, Cloneable {
         if (!IsValidIndex(row, column)) {
             return Codes.ReturnCode.INVALID_MOVE;
         }
-        // Check if we have a restriction on where stone can be placed
-        int distance = AwayFromCenter(row, column);
-        if ((m_currMove.innerBounds > distance) || (distance > m_currMove.outerBounds)) {
-            return Codes.ReturnCode.INVALID_MOVE;
-        }
-        // Can't place stone if square is already occupied
-        if (m_gameBoard.get(row).get(column) != NULL_PIECE) {
-            return Codes.ReturnCode.SPACE_OCCUPIED;
-        }
-        // Can't place a stone if there is a winner
-        if (m_currMove.winInARow > 0) {
-            return Codes.ReturnCode.ALREADY_WINNER;
+
+        return PlaceStone(a_color, ToCell(row, column));
+    }
+
+    /**
+     * Facilitates the move made by player by placing a stone on a cell
+     *     of the board, without going through a position string. Checking if
+     *     the move is valid and updates the board accordingly.
+     * @param a_color a character. The color of the player making the move
+     * @param a_cell an integer. The cell index the player wants to place their
+     *           stone on, row * BOARD_SIZE + column
+     * @return The success of the move, a Codes.ReturnCode enum value
+     */
+    /*
+    Algorithm:
+        1) Ensure the color is a player's stone
+        2) Ensure the stone can be placed on the cell, see CheckPlacement
+        3) Update the board based on the move, checking for wins, captures, etc.
+        4) Store the move for later use, if we need to undo at a later time
+     */
+    public Codes.ReturnCode PlaceStone(char a_color, int a_cell) {
+        // Only player stones can be placed on the board
+        byte stone = ToStone(a_color);
+        if (stone != WHITE_STONE && stone != BLACK_STONE) {
+            return Codes.ReturnCode.INVALID_COLOR;
         }
-        // If board is full, we cannot place a stone
-        if (IsBoardFull()) {
-            return Codes.ReturnCode.FULL_BOARD;
+        Codes.ReturnCode status = CheckPlacement(a_cell);
+        if (status != Codes.ReturnCode.SUCCESS) {
+            return status;
         }
 
-
         // Place the stone on the board
-        m_gameBoard.get(row).set(column, a_color);
-        // Store the sequences after placing the stone, but before capturing
-        m_currMove.prevSeqs = ColorSeq(WIN_SCORE, row, column);
+        int square = CELL_TO_SQUARE[a_cell];
+        SetSquare(square, stone);
         m_currMove.intersectLeft--;
-        m_currMove.position = a_position;
+        m_currMove.cell = a_cell;
 
         // Check if the move resulted in a winner, or captured PositionPairs
-        m_currMove.winInARow = GetNumNInARow(WIN_SCORE, row, column);
-        m_currMove.capturedPairs = CapturePairs(a_color, row, column);
+        m_currMove.winInARow = GetNumNInARow(WIN_SCORE, a_cell / BOARD_SIZE, a_cell % BOARD_SIZE);
+        m_currMove.capturedPairs = CapturePairs(stone, square);
+        SetCapturedTotal(stone, m_capturedTotals[stone] + m_currMove.capturedPairs);
+        SetNextStone(OtherStone(stone));
 
         // Store the move on the stack, so we can undo if needed
-        m_prevMoves.push(m_currMove);
+        PushMove();
+        m_version++;
 
         return Codes.ReturnCode.SUCCESS;
     }
@@ -302,36 +611,56 @@ public class Board implements Serializable, Cloneable {
     Algorithm:
         1) Check if there are any moves to undo, can't undo if there are none
         2) Get the last move made by the player
-        3) Undo the move by updating the board to the previous state
+        3) Undo the move by updating the board to the previous state, putting
+            back any pairs captured in the directions recorded
+        4) Restore the last move from the record below it on the stack
      */
     public Codes.ReturnCode UndoMove() {
         // Can't undo if there are no moves to undo
-        if (m_prevMoves.empty()) {
+        if (m_numPrevMoves == 0) {
             return Codes.ReturnCode.NO_PREV_MOVES;
         }
 
-        // Get the last move
-        m_currMove = m_prevMoves.peek();
-        m_prevMoves.pop();
-
-        // Get the row and column indices from the position. Row and column
-        // Not stored in the move as we can get it from a method - we know its valid already
-        PositionPair rawPosition = new PositionPair();
-        ParsePosition(m_currMove.position, rawPosition);
-        int row = rawPosition.row; int column = rawPosition.column;
-
-        // Undo the sequences - middle piece is stored at each direction so set it to null
-        UpdateSeqs(m_currMove.prevSeqs, row, column);
-        m_gameBoard.get(row).set(column, NULL_PIECE);
+        // Get the last move, the current move is always the top of the stack
+        int record = m_prevMoves[--m_numPrevMoves];
+        int square = CELL_TO_SQUARE[record & RECORD_CELL_MASK];
+        int capturedDirections = (record >>> RECORD_DIRECTION_SHIFT) & RECORD_DIRECTION_MASK;
 
-        // Update the number of intersections left based on if there was a capture
-        m_currMove.intersectLeft++;
-        m_currMove.intersectLeft += m_currMove.capturedPairs * CAPTURE_NUM;
-
-        // Reset the win and capture counts as we have undone the move
-        // Can't have a win or capture there was no move made at this state
-        m_currMove.winInARow = DEFAULT_SCORES;
-        m_currMove.capturedPairs = DEFAULT_SCORES;
+        // Put back the captured pairs, they are always the opposite color of the stone placed
+        byte placedStone = m_squares[square];
+        byte capturedStone = OtherStone(placedStone);
+        for (int direction = 0; direction < NUM_DIRECTIONS; direction++) {
+            if ((capturedDirections & (1 << direction)) == 0) {
+                continue;
+            }
+            for (int step = 1; step <= CAPTURE_NUM; step++) {
+                SetSquare(square + step * DIRECTION_OFFSET[direction], capturedStone);
+            }
+        }
+        int capturedPairs = Integer.bitCount(capturedDirections);
+        SetCapturedTotal(placedStone, m_capturedTotals[placedStone] - capturedPairs);
+        ClearSquare(square);
+        // The player who placed the stone is to move again
+        SetNextStone(placedStone);
+
+        // Captures freed up intersections, the stone took one
+        m_currMove.intersectLeft += 1 - capturedPairs * CAPTURE_NUM;
+
+        // Back to the state after the move before, if there was one
+        if (m_numPrevMoves == 0) {
+            m_currMove.cell = NO_CELL;
+            m_currMove.capturedDirections = 0;
+            m_currMove.winInARow = DEFAULT_SCORES;
+            m_currMove.capturedPairs = DEFAULT_SCORES;
+        }
+        else {
+            record = m_prevMoves[m_numPrevMoves - 1];
+            m_currMove.cell = record & RECORD_CELL_MASK;
+            m_currMove.capturedDirections = (record >>> RECORD_DIRECTION_SHIFT) & RECORD_DIRECTION_MASK;
+            m_currMove.winInARow = (record >>> RECORD_WIN_SHIFT) & RECORD_WIN_MASK;
+            m_currMove.capturedPairs = record >>> RECORD_PAIRS_SHIFT;
+        }
+        m_version++;
 
         return Codes.ReturnCode.SUCCESS;
     }
@@ -365,50 +694,50 @@ public class Board implements Serializable, Cloneable {
             }
         }
 
-        // Set our member to the board, so we can use its methods
-        // But store a copy, so we can revert if something goes wrong
-        Vector<Vector<Character>> gameBoardCopy = GetGameBoard();
-        m_gameBoard = a_gameBoard;
+        // Convert to our squares before touching the board, every piece must be known
+        byte[] squares = NewSquares();
+        BitBoard whiteStones = new BitBoard(); BitBoard blackStones = new BitBoard();
         // Stores the number of intersections left on the board
         int intersectLeft = 0;
-        // We nest here as we need to check 2 conditions, if there are pieces left
-        // and if there is a winner. We need to check every position on the board here
-        // as we don't know where the last move was made. It is also more efficient to
-        // not loop through entire board twice - only need one check.
         for (int row = 0; row < BOARD_SIZE; row++) {
             for (int column = 0; column < BOARD_SIZE; column++) {
-                // Check if there are any pieces left
-                if (a_gameBoard.get(row).get(column) == NULL_PIECE) {
-                    intersectLeft++;
-                    // Don't check for winner if piece is null
-                    continue;
-                }
-
-                // Check if we have a winner on select piece
-                if (GetNumNInARow(WIN_SCORE, row, column) > 0) {
-                    // Put game board back to original state, as we cannot set board
-                    m_gameBoard = gameBoardCopy;
-                    return Codes.ReturnCode.ALREADY_WINNER;
-                }
+                byte stone = ToStone(a_gameBoard.get(row).get(column));
+                int square = ToSquare(row, column);
+                squares[square] = stone;
+
+                if (stone == EMPTY_SQUARE) { intersectLeft++; }
+                else if (stone == WHITE_STONE) { whiteStones.Set(SQUARE_TO_CELL[square]); }
+                else if (stone == BLACK_STONE) { blackStones.Set(SQUARE_TO_CELL[square]); }
+                else { return Codes.ReturnCode.INVALID_BOARD; }
             }
         }
+
+        // We don't know where the last move was made, so check the entire board at once
+        if (whiteStones.HasNInARow(WIN_SCORE) || blackStones.HasNInARow(WIN_SCORE)) {
+            return Codes.ReturnCode.ALREADY_WINNER;
+        }
         // If board is full, we cannot place a stone
         if (intersectLeft == 0) {
-            // Put game board back to original state, as we cannot set board
-            m_gameBoard = gameBoardCopy;
             return Codes.ReturnCode.FULL_BOARD;
         }
 
 
         // Update members to reflect new board
+        m_squares = squares;
+        m_whiteStones = whiteStones;
+        m_blackStones = blackStones;
+        m_zobristKey = ComputeZobristKey();
+        ResetLineCounts();
+        ResetNearCells();
         m_currMove.intersectLeft = intersectLeft;
         // We don't know last position, so we set it to default
-        m_currMove.position = DEFAULT_LAST_POSITION;
+        m_currMove.cell = NO_CELL;
         m_currMove.winInARow = DEFAULT_SCORES;
         m_currMove.capturedPairs = DEFAULT_SCORES;
 
         // Clear the previous moves as we have a new board and don't know last move
-        m_prevMoves = new Stack<Move>();
+        m_numPrevMoves = 0;
+        m_version++;
 
         return Codes.ReturnCode.SUCCESS;
     }
@@ -429,8 +758,48 @@ public class Board implements Serializable, Cloneable {
             return Codes.ReturnCode.INVALID_BOUNDS;
         }
 
+        // Swap the old bounds out of the key and the new ones in
+        m_zobristKey ^= Zobrist.INNER_BOUNDS_KEYS[m_currMove.innerBounds]
+                ^ Zobrist.OUTER_BOUNDS_KEYS[m_currMove.outerBounds];
         m_currMove.innerBounds = a_innerBounds;
         m_currMove.outerBounds = a_outerBounds;
+        m_zobristKey ^= Zobrist.INNER_BOUNDS_KEYS[a_innerBounds]
+                ^ Zobrist.OUTER_BOUNDS_KEYS[a_outerBounds];
+        m_version++;
+        return Codes.ReturnCode.SUCCESS;
+    }
+
+    /**
+     * To set the color of the player who moves next, e.g. when resuming
+     *     a serialized game. Placing a stone sets it to the other player
+     * @param a_color a character. The color of the next player
+     * @return The success of setting the next player, a Codes.ReturnCode enum value
+     */
+    public Codes.ReturnCode SetNextColor(char a_color) {
+        byte stone = ToStone(a_color);
+        if (stone != WHITE_STONE && stone != BLACK_STONE) {
+            return Codes.ReturnCode.INVALID_COLOR;
+        }
+        SetNextStone(stone);
+        return Codes.ReturnCode.SUCCESS;
+    }
+
+    /**
+     * To set the total amount of pairs a player has captured this round,
+     *     e.g. when resuming a serialized game
+     * @param a_color a character. The color of the player
+     * @param a_pairs an integer. The number of pairs captured
+     * @return The success of setting the pairs, a Codes.ReturnCode enum value
+     */
+    public Codes.ReturnCode SetCapturedPairs(char a_color, int a_pairs) {
+        byte stone = ToStone(a_color);
+        if (stone != WHITE_STONE && stone != BLACK_STONE) {
+            return Codes.ReturnCode.INVALID_COLOR;
+        }
+        if (a_pairs < 0 || a_pairs >= Zobrist.MAX_CAPTURES) {
+            return Codes.ReturnCode.INVALID_INC;
+        }
+        SetCapturedTotal(stone, a_pairs);
         return Codes.ReturnCode.SUCCESS;
     }
 
@@ -440,26 +809,77 @@ public class Board implements Serializable, Cloneable {
     /* Public Utility Functions */
 
     /**
-     * To clone the board, i.e. make a deep copy of the board
-     * @return A deep copy of the board object
+     * To clone the board, i.e. make a copy of the board that can be changed
+     *     without affecting this one. Copy on write, the squares and previous
+     *     moves are only copied once either board changes.
+     * @return A copy of the board object
+     */
+    /*
+    Algorithm:
+        1) Copy the small members, the current move and captured totals
+        2) Share the squares, bitboards, near cells and previous moves, marking both boards
+            so the first change to either makes its own copy, see Unshare
      */
     @NonNull
     @Override
     public Board clone() {
-        Board copy = new Board();
+        Board copy;
         try { copy = (Board) super.clone(); }
-        // Ignoring error as we currently all current private members need to be
-        // deep copied regardless of using super.clone()
-        catch (CloneNotSupportedException ignored) {}
-
-        // Deep copy all of our object members
-        copy.m_gameBoard = GetGameBoard();
+        // Board is Cloneable, so this can never happen
+        catch (CloneNotSupportedException e) { throw new AssertionError(e); }
+
+        // Both boards now refer to the same squares, bitboards and previous moves
+        this.m_shared = true;
+        copy.m_shared = true;
+
+        // Small members are deep copied straight away
+        copy.m_capturedTotals = this.m_capturedTotals.clone();
+        copy.m_lineCounts = new int[BLACK_STONE + 1][];
+        for (byte stone = WHITE_STONE; stone <= BLACK_STONE; stone++) {
+            copy.m_lineCounts[stone] = this.m_lineCounts[stone].clone();
+        }
         copy.m_currMove = this.m_currMove.clone();
-        copy.m_prevMoves = (Stack<Move>)this.m_prevMoves.clone();
+        // Scratch space is never shared, so copies can be used on other threads
+        copy.m_lineRuns = new int[RUNS_SIZE];
+        copy.m_candidateWords = new long[BitBoard.NUM_WORDS];
+        copy.m_captureScratch = new long[BitBoard.CAPTURE_SCRATCH_SIZE][BitBoard.NUM_WORDS];
 
         return copy;
     }
 
+    /**
+     * To check if two boards hold the same position, i.e. the same stones,
+     *     player to move, captured pairs and bounds restriction
+     * @param a_other an Object. The object to compare with
+     * @return true if the positions are the same, false otherwise
+     */
+    @Override
+    public boolean equals(Object a_other) {
+        if (this == a_other) {
+            return true;
+        }
+        if (!(a_other instanceof Board)) {
+            return false;
+        }
+        Board other = (Board) a_other;
+        // Keys differ for almost every different position, so it's a cheap first check
+        return m_zobristKey == other.m_zobristKey
+                && m_nextStone == other.m_nextStone
+                && m_currMove.innerBounds == other.m_currMove.innerBounds
+                && m_currMove.outerBounds == other.m_currMove.outerBounds
+                && Arrays.equals(m_capturedTotals, other.m_capturedTotals)
+                && Arrays.equals(m_squares, other.m_squares);
+    }
+
+    /**
+     * To get the hash code of the position, taken from the Zobrist key
+     * @return The hash code, an integer
+     */
+    @Override
+    public int hashCode() {
+        return (int) (m_zobristKey ^ (m_zobristKey >>> 32));
+    }
+
     /**
      * To get the number of sequences of n stones in a row on a specific
      *     intersection on the board. E.g. 2 if there are 2 sequences of 5 in a
@@ -473,31 +893,100 @@ public class Board implements Serializable, Cloneable {
     Algorithm:
         1) Check if we can check for n in a row, i.e. n > 1. A sequence of 1 is just a
             stone on the board
-        2) Add the number of stone sequences in each direction together based on their
-            cardinal planes: horizontal, vertical and the two diagonals
-        3) Divide by n to account for double counting in the cardinal planes
+        2) Get the runs of stones in each direction from the intersection
+        3) Count the sequences of n from the runs, see CountNInARow
       */
     public int GetNumNInARow(int a_n, int a_row, int a_column) {
         // Can't check for less than 2 in a row - causes problems with double counting
         final int LOWER_LIMIT = 2;
 
+        if (a_n < LOWER_LIMIT || !IsValidIndex(a_row, a_column)) {
+            return 0;
+        }
+
+        GetLineRuns(a_row, a_column, m_lineRuns);
+        return CountNInARow(m_lineRuns, a_n);
+    }
+
+    /**
+     * To get the runs of same color stones through an intersection in
+     *     every cardinal plane in a single pass, e.g. horizontal, vertical
+     *     and the two diagonals. See RUN_STRIDE for the layout.
+     * @param a_row an integer. The row index of the intersection
+     * @param a_column an integer. The column index of the intersection
+     * @param a_runs an integer array of at least RUNS_SIZE. Filled with the runs,
+     *     all 0 if there is no stone on the intersection
+     */
+    /*
+    Algorithm:
+        1) If there is no stone on the intersection, there are no runs
+        2) For each direction step out until the stone is not the same color,
+            the border always stops us before leaving the board
+        3) Record the run length and if the intersection that stopped us is empty
+     */
+    public void GetLineRuns(int a_row, int a_column, int[] a_runs) {
+        final int SQUARE = ToSquare(a_row, a_column);
+        final byte STONE = m_squares[SQUARE];
+        if (STONE != WHITE_STONE && STONE != BLACK_STONE) {
+            Arrays.fill(a_runs, 0, RUNS_SIZE, 0);
+            return;
+        }
+
+        int offset; int square; int run; int index;
+        for (int direction = 0; direction < NUM_DIRECTIONS; direction++) {
+            offset = DIRECTION_OFFSET[direction];
+            square = SQUARE + offset;
+            run = 0;
+            while (m_squares[square] == STONE) {
+                run++;
+                square += offset;
+            }
+
+            // Forward directions come first, the opposite ones are the next NUM_PLANES
+            index = (direction % NUM_PLANES) * RUN_STRIDE;
+            if (direction < NUM_PLANES) {
+                a_runs[index + RUN_FORWARD] = run;
+                a_runs[index + OPEN_FORWARD] = (m_squares[square] == EMPTY_SQUARE) ? 1 : 0;
+            }
+            else {
+                a_runs[index + RUN_BACKWARD] = run;
+                a_runs[index + OPEN_BACKWARD] = (m_squares[square] == EMPTY_SQUARE) ? 1 : 0;
+            }
+        }
+    }
+
+    /**
+     * To get the number of sequences of n stones in a row from the runs
+     *     of an intersection, see GetNumNInARow
+     * @param a_runs a final integer array. The runs filled by GetLineRuns
+     * @param a_n an integer. The number of stones out from the intersection to check for
+     * @return The number of sequences of n stones in a row, an integer
+     */
+    /*
+    Algorithm:
+        1) Count the stones in each direction, including the one on the intersection, up
+            to n stones out. Add the count of opposite directions together
+        2) Remove the shared middle stone unless the count is a multiple of n in both directions
+        3) Divide by n to get the number of sequences in that cardinal plane
+     */
+    public static int CountNInARow(final int[] a_runs, int a_n) {
         // Holds the count of the number of times N in a row appears
         int NInARow = 0;
 
-        if (a_n < LOWER_LIMIT) {
-            return NInARow;
-        }
+        int count;
+        for (int plane = 0; plane < NUM_PLANES; plane++) {
+            // Get the counts based on the cardinal planes, e.g a count of 10 means
+            // when a_n = 5, the stone sequence at that direction had 10 stones in a row
+            // The count also will "share" the middle stone at the intersection, so a
+            // count of 10 at a_n = 5 really means there is 9 in a row, sharing the middle
+            count = Math.min(a_runs[plane * RUN_STRIDE + RUN_FORWARD] + 1, a_n)
+                    + Math.min(a_runs[plane * RUN_STRIDE + RUN_BACKWARD] + 1, a_n);
 
-        // Get the counts based on the cardinal planes, e.g a count of 10 means
-        // when a_n = 5, the stone sequence at that direction had 10 stones in a row
-        // The count also will "share" the middle stone at the intersection, so a
-        // count of 10 at a_n = 5 really means there is 9 in a row, sharing the middle
-        for(int count : CardinalCount(a_n, a_row, a_column)) {
             // If a count = n * 2, then there are 2 sequences of stones of n
             // in a row in that direction when sharing the middle stone.
             // If it's not double, then there is only one sequence so subtract 1 to
             // account for the shared middle stone.
-            if (count > 0 && ((count / 2) % a_n) != 0) {
+            if (((count / 2) % a_n) != 0) {
                 count--;
             }
 
@@ -520,46 +1009,80 @@ public class Board implements Serializable, Cloneable {
     Algorithm:
         1) Check if a_n is within the bounds of the board and not 0,
             can't check for 0 stones in a row
-        2) Loop through every intersection on the board where the stone color
-            matches
-        3) Get the number of stones in a row in each cardinal place, e.g. horizontal,
-            vertical and the two diagonals at a_n. We cannot share the same
-            direction if a stone sequence is greater than a_n. We can share
-            other directions, but not the same one
+        2) Get the bitboard of the stone color
+        3) Count the lines of exactly a_n stones in each cardinal plane, e.g.
+            horizontal, vertical and the two diagonals. A line longer than a_n
+            does not count. Stones can be shared by lines in other planes
      */
     public int GetUninterStones(int a_n, char a_color) {
-        // Holds the total number of structures/interrupted stones at a_n
-        int total = 0;
-
         // Can't check for 0 stones in a row, and we check a_n + 1, so we need to
         // be within the bounds of the board
         if (a_n < 1 || a_n > BOARD_SIZE - 1) {
-            return total;
+            return 0;
         }
 
-        // For every intersection
-        for (int row = 0; row < BOARD_SIZE; row++) {
-            for (int column = 0; column < BOARD_SIZE; column++){
-                // Don't check on different color stones or null pieces
-                if (m_gameBoard.get(row).get(column) != a_color) {
-                    continue;
-                }
+        BitBoard stones = GetStones(ToStone(a_color));
+        if (stones == null) {
+            return 0;
+        }
+        return stones.CountExactRuns(a_n);
+    }
 
-                // Get the number of stones in a row in each cardinal place for a_n + 1
-                // at specific intersection, as we cannot double count in the same direction
-                for (int count : CardinalCount(a_n + 1, row, column)) {
-                    // Remove the double count on the shared middle stone
-                    count--;
-                    // Only add if the count is exactly a_n, i.e. no double count
-                    if (count == a_n) {
-                        total++;
-                    }
-                }
+    /**
+     * To get the number of intersections where a player could capture
+     *     a pair on their next move, across the entire board
+     * @param a_color a character. The color of the player that would capture
+     * @return The number of capturing intersections, an integer
+     */
+    public int GetCaptureMoves(char a_color) {
+        byte stone = ToStone(a_color);
+        if (stone != WHITE_STONE && stone != BLACK_STONE) {
+            return 0;
+        }
+        return BitBoard.CountCaptureMoves(GetStones(stone), GetStones(OtherStone(stone)), m_captureScratch);
+    }
+
+    /**
+     * To get the number of windows of WIN_SCORE intersections, in any cardinal
+     *     plane, holding a number of a player's stones and none of the opponent's
+     * @param a_stone a byte. The stone code of the player
+     * @param a_stones an integer. The number of stones in the window, 1 to WIN_SCORE
+     * @return The number of windows, an integer. Read from totals kept up to date,
+     *     so nothing on the board is looked at
+     */
+    int GetLineCount(byte a_stone, int a_stones) {
+        return m_lineCounts[a_stone][a_stones];
+    }
+
+    /**
+     * To get the cells worth playing for the player to move, i.e. the legal
+     *     cells within CANDIDATE_DISTANCE of a stone. If there are none, e.g. on an
+     *     empty board or a bounds restriction, every legal cell.
+     * @param a_cells an integer array of NUM_CELLS. Filled with the candidate cells, lowest first
+     * @return The number of candidate cells, an integer. 0 if the round is over
+     */
+    public int GetCandidateCells(int[] a_cells) {
+        FillCandidateWords(m_candidateWords);
+        int count = 0;
+        for (int word = 0; word < BitBoard.NUM_WORDS; word++) {
+            long bits = m_candidateWords[word];
+            while (bits != 0) {
+                a_cells[count++] = word * BitBoard.WORD_SIZE + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
             }
         }
+        return count;
+    }
 
-        // We double count the sequence n times, so we need to divide by n
-        return total / a_n;
+    /**
+     * To iterate over the candidate cells without filling an array, see GetCandidateCells
+     * @return An iterator of the candidate cells, lowest first. The cells are taken now,
+     *     so the board can be changed while iterating, e.g. to try each move
+     */
+    public PrimitiveIterator.OfInt GetCandidateIterator() {
+        long[] words = new long[BitBoard.NUM_WORDS];
+        FillCandidateWords(words);
+        return new CandidateIterator(words);
     }
 
     /**
@@ -573,71 +1096,168 @@ public class Board implements Serializable, Cloneable {
      */
     /*
     Algorithm:
-        1) Create a pattern to match for potential captures, i.e. a sequence of
-            stones that can be captured in the next ply
-        2) Get the sequences of stones in each cardinal direction
-        3) Check if the sequences match the pattern, if so we have a potential capture
-    Assistance Received:
-        https://regex101.com
-        https://www.w3schools.com/java/java_regex.asp
+        1) For each cardinal plane, pack the intersections around the stone into a window
+        2) Look up if the window holds a pair that can be captured, the table is
+            built once for every possible window, see IsCaptureThreat
      */
     public int GetPotentialCaptures(char a_color, int a_row, int a_column) {
         // Hold the amount of potential captures
         int count = 0;
 
-        // Need to match of this regex, where the stone sequence can be on either side:
-        // [^NULL_PIECE^a_color]{CAPTURE_NUM}|{CAPTURE_NUM}[^NULL_PIECE^a_color]
-        // E.g. WBBO -> 1 potential capture OBBW -> 1 potential capture
-        // The ends cannot both be the same color, one must be null and the other
-        // must be a different color than our current one
-
-        // Purposefully not putting in a separate function as it is only used here and is
-        // much more readable here.
-
-        // We will first create the header: [^NULL_PIECE^a_color]
-        final String REGEX_HEADER = "[^" + NULL_PIECE + "^" + a_color + "]";
-
-        // Then create the capture sequence: NULL_PIECE{CAPTURE_NUM}
-        StringBuilder capSeq = new StringBuilder(String.valueOf(NULL_PIECE));
-        for (int i = 0; i < CAPTURE_NUM; i++) {
-            capSeq.append(a_color);
-        }
-        // Get the reverse of it, to get the other combination
-        StringBuilder revCapSeq = new StringBuilder(capSeq.toString()).reverse();
-        // Add the header to the capture sequence, and the reverse capture sequence
-        capSeq.append(REGEX_HEADER);
-        revCapSeq = new StringBuilder(REGEX_HEADER + revCapSeq);
-
-        // Put it into a pattern
-        Pattern pattern = Pattern.compile(capSeq + "|" + revCapSeq);
-        Matcher matcher;
-        
-        // Now we need to get the cardinal directions, e.g. horizontal, vertical and the two diagonals
-        final int PLANES = NUM_DIRECTIONS / 2;
-        // Our sequence length is the capture number + 1, as we need to check 3 intersections away
-        // in each direction
-        final int SEQ_LENGTH = CAPTURE_NUM + 1;
-
-        Vector<String> directionSeqs = ColorSeq(SEQ_LENGTH, a_row, a_column);
-        StringBuilder firstSeq; StringBuilder secondSeq;
-
-        for(int direction = 0; direction < PLANES; direction++) {
-            // Remove the same middle stone from the sequence, as we don't want to double count
-            firstSeq = new StringBuilder(directionSeqs.get(direction)).delete(0,1);
-            // Get the second sequence, which we need to reverse as we want to check the other side
-            // Delete first stone, as we haven't "placed it"
-            secondSeq = new StringBuilder(directionSeqs.get(direction + PLANES)).delete(0,1).reverse();
-
-            // If hit a match, that means we have 1 potential capture in next ply
-            // Values on left + stone to place + values on right, is the sequence
-            matcher = pattern.matcher(secondSeq.toString() + a_color + firstSeq.toString());
-            if (matcher.find()) {
-                count++;
+        byte stone = ToStone(a_color);
+        if ((stone != WHITE_STONE && stone != BLACK_STONE) || !IsValidIndex(a_row, a_column)) {
+            return count;
+        }
+
+        final int SQUARE = ToSquare(a_row, a_column);
+        final byte[] THREATS = CAPTURE_THREATS[stone];
+        int offset; int square; int window;
+        for (int plane = 0; plane < NUM_PLANES; plane++) {
+            offset = DIRECTION_OFFSET[plane];
+            // The border is always at least CAPTURE_RADIUS wide, we never leave the squares
+            square = SQUARE - CAPTURE_RADIUS * offset;
+            window = 0;
+            for (int step = 0; step < CAPTURE_WINDOW; step++) {
+                window = (window << STONE_BITS) | m_squares[square];
+                square += offset;
             }
+            count += THREATS[window];
         }
         return count;
     }
 
+    /**
+     * To get the packed window of intersections around a stone in a cardinal plane,
+     *     seen by the player who owns the stone. See PatternTable
+     * @param a_cell an integer. The cell of the stone, must have a stone
+     * @param a_plane an integer. The cardinal plane, 0 to NUM_PLANES - 1
+     * @return The packed window, an integer. Indexes the PatternTable's tables
+     */
+    int GetPatternWindow(int a_cell, int a_plane) {
+        final int SQUARE = CELL_TO_SQUARE[a_cell];
+        final int OFFSET = DIRECTION_OFFSET[a_plane];
+        final int[] CODES = PatternTable.CODES[m_squares[SQUARE]];
+
+        int window = 0;
+        int square = SQUARE - PatternTable.RADIUS * OFFSET;
+        for (int step = 0; step < PatternTable.WINDOW; step++) {
+            window = PatternTable.Index(window, CODES[m_squares[square]]);
+            square += OFFSET;
+        }
+        return window;
+    }
+
+    /**
+     * To get the cell of a recent move
+     * @param a_movesBack an integer. 0 for the last move, 1 for the one before it, and so on
+     * @return The cell of the move, NO_CELL if there weren't that many moves
+     */
+    int GetRecentCell(int a_movesBack) {
+        if (a_movesBack < 0 || a_movesBack >= m_numPrevMoves) {
+            return NO_CELL;
+        }
+        return m_prevMoves[m_numPrevMoves - 1 - a_movesBack] & RECORD_CELL_MASK;
+    }
+
+    /**
+     * To get the longest line a stone would make if placed on an empty cell
+     * @param a_cell an integer. The empty cell to place on
+     * @param a_stone a byte. The stone code of the player placing, WHITE_STONE or BLACK_STONE
+     * @return The most stones in a row through the cell in any cardinal plane, counting it
+     */
+    int GetLineThrough(int a_cell, byte a_stone) {
+        final int SQUARE = CELL_TO_SQUARE[a_cell];
+        int longest = 0;
+        for (int plane = 0; plane < NUM_PLANES; plane++) {
+            final int OFFSET = DIRECTION_OFFSET[plane];
+            int line = 1;
+            for (int square = SQUARE + OFFSET; m_squares[square] == a_stone; square += OFFSET) {
+                line++;
+            }
+            for (int square = SQUARE - OFFSET; m_squares[square] == a_stone; square -= OFFSET) {
+                line++;
+            }
+            longest = Math.max(longest, line);
+        }
+        return longest;
+    }
+
+    /**
+     * To check if a stone placed on an empty cell would make a four, i.e. WIN_SCORE
+     *     intersections in a row holding only the player's stones but one empty
+     * @param a_cell an integer. The empty cell to place on
+     * @param a_stone a byte. The stone code of the player placing, WHITE_STONE or BLACK_STONE
+     * @return true if the player could win on their next move by five in a row, false otherwise
+     */
+    /*
+    Algorithm:
+        1) Look at every window of WIN_SCORE squares through the cell in each cardinal plane
+        2) A window with none of the opponent's stones or the border, and WIN_SCORE - 2
+            of the player's stones besides the cell, is a four once the stone is placed
+     */
+    boolean MakesFour(int a_cell, byte a_stone) {
+        final int SQUARE = CELL_TO_SQUARE[a_cell];
+        for (int plane = 0; plane < NUM_PLANES; plane++) {
+            final int OFFSET = DIRECTION_OFFSET[plane];
+            // The border is WIN_SCORE - 1 wide, so no window leaves the squares
+            for (int first = 1 - WIN_SCORE; first <= 0; first++) {
+                final int START = SQUARE + first * OFFSET;
+                int stones = 0;
+                boolean open = true;
+                for (int step = 0; step < WIN_SCORE && open; step++) {
+                    int square = START + step * OFFSET;
+                    if (square == SQUARE) {
+                        continue;
+                    }
+                    if (m_squares[square] == a_stone) { stones++; }
+                    else if (m_squares[square] != EMPTY_SQUARE) { open = false; }
+                }
+                if (open && stones == WIN_SCORE - 2) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * To check if a stone placed on an empty cell would threaten a capture,
+     *     i.e. leave a pair of the opponent's stones between it and an empty intersection
+     * @param a_cell an integer. The empty cell to place on
+     * @param a_stone a byte. The stone code of the player placing, WHITE_STONE or BLACK_STONE
+     * @return true if the player could capture on their next move because of it, false otherwise
+     */
+    boolean ThreatensCapture(int a_cell, byte a_stone) {
+        final int SQUARE = CELL_TO_SQUARE[a_cell];
+        final byte OTHER_STONE = OtherStone(a_stone);
+        for (int direction = 0; direction < NUM_DIRECTIONS; direction++) {
+            final int OFFSET = DIRECTION_OFFSET[direction];
+            if (m_squares[SQUARE + OFFSET] == OTHER_STONE && m_squares[SQUARE + 2 * OFFSET] == OTHER_STONE
+                    && m_squares[SQUARE + (CAPTURE_NUM + 1) * OFFSET] == EMPTY_SQUARE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * To get the pairs a stone would capture if placed on an empty cell, see CapturePairs
+     * @param a_cell an integer. The empty cell to place on
+     * @param a_stone a byte. The stone code of the player placing, WHITE_STONE or BLACK_STONE
+     * @return The number of pairs that would be captured, an integer
+     */
+    int GetCapturesAt(int a_cell, byte a_stone) {
+        final int SQUARE = CELL_TO_SQUARE[a_cell];
+        final byte OTHER_STONE = OtherStone(a_stone);
+        int pairs = 0;
+        for (int direction = 0; direction < NUM_DIRECTIONS; direction++) {
+            if (IsCapture(a_stone, OTHER_STONE, SQUARE, DIRECTION_OFFSET[direction])) {
+                pairs++;
+            }
+        }
+        return pairs;
+    }
+
     /**
      * Convert the string/move input to a valid row and column
      *     index for the game board. Takes in position, e.g. "J10" and parses
@@ -690,6 +1310,44 @@ public class Board implements Serializable, Cloneable {
         return true;
     }
 
+    /**
+     * Convert a position string to its cell index, e.g. "J10" -> 180
+     * @param a_position a constant string reference. The position, e.g. "J10"
+     * @return The cell index, NO_CELL if the position can't be parsed or is off the board
+     */
+    public static int PositionToCell(final String a_position) {
+        PositionPair rawPosition = new PositionPair();
+        if (!ParsePosition(a_position, rawPosition)) {
+            return NO_CELL;
+        }
+        return ToCell(rawPosition.row, rawPosition.column);
+    }
+
+    /**
+     * Convert a cell index to its position string, e.g. 180 -> "J10"
+     * @param a_cell an integer. The cell index, row * BOARD_SIZE + column
+     * @return The position as a string, DEFAULT_LAST_POSITION if the cell is off the board
+     */
+    public static String CellToPosition(int a_cell) {
+        if (a_cell < 0 || a_cell >= NUM_CELLS) {
+            return DEFAULT_LAST_POSITION;
+        }
+        return POSITION_STRINGS[a_cell];
+    }
+
+    /**
+     * Convert a row and column index to a cell index, row * BOARD_SIZE + column
+     * @param a_row an integer. The row index
+     * @param a_column an integer. The column index
+     * @return The cell index, NO_CELL if the indices are off the board
+     */
+    public static int ToCell(int a_row, int a_column) {
+        if (!IsValidIndex(a_row, a_column)) {
+            return NO_CELL;
+        }
+        return a_row * BOARD_SIZE + a_column;
+    }
+
     /**
      * Convert row and columns to their corresponding position
      *     string, e.g. row = 9, column = 9 -> "J10"
@@ -698,6 +1356,11 @@ public class Board implements Serializable, Cloneable {
      * @return The position as a string
      */
     public static String IndicesToString(int a_row, int a_column) {
+        // Strings for the board are already made
+        if (IsValidIndex(a_row, a_column)) {
+            return POSITION_STRINGS[ToCell(a_row, a_column)];
+        }
+
         // Offset the row and column to their corresponding position
         int row = a_row + ROW_OFFSET;
         char column = (char)(a_column + COLUMN_OFFSET);
@@ -732,6 +1395,48 @@ public class Board implements Serializable, Cloneable {
         return Math.max(Math.abs(a_row - CENTER_INDEX), Math.abs(a_column - CENTER_INDEX));
     }
 
+    /**
+     * To convert a row and column index to its square on the padded board
+     * @param a_row an integer. The row index of the intersection
+     * @param a_column an integer. The column index of the intersection
+     * @return The index of the square in the padded board, an integer
+     */
+    static int ToSquare(int a_row, int a_column) {
+        return (a_row + PADDING) * PADDED_SIZE + (a_column + PADDING);
+    }
+
+    /**
+     * To convert a piece on the board to the stone code stored on a square
+     * @param a_piece a character. The piece, e.g. 'W' for white or NULL_PIECE
+     * @return The stone code, BORDER_SQUARE if the piece is not a known piece
+     */
+    static byte ToStone(char a_piece) {
+        if (a_piece == Player.WHITE_CHAR) { return WHITE_STONE; }
+        else if (a_piece == Player.BLACK_CHAR) { return BLACK_STONE; }
+        else if (a_piece == NULL_PIECE) { return EMPTY_SQUARE; }
+        else { return BORDER_SQUARE; }
+    }
+
+    /**
+     * To convert the stone code stored on a square to the piece on the board
+     * @param a_stone a byte. The stone code, e.g. WHITE_STONE
+     * @return The piece, e.g. 'W' for white or NULL_PIECE if no stone
+     */
+    static char ToPiece(byte a_stone) {
+        if (a_stone == WHITE_STONE) { return Player.WHITE_CHAR; }
+        else if (a_stone == BLACK_STONE) { return Player.BLACK_CHAR; }
+        else { return NULL_PIECE; }
+    }
+
+    /**
+     * To get the stone code of the opposing player
+     * @param a_stone a byte. The stone code of a player, WHITE_STONE or BLACK_STONE
+     * @return The stone code of the other player
+     */
+    static byte OtherStone(byte a_stone) {
+        return (a_stone == WHITE_STONE) ? BLACK_STONE : WHITE_STONE;
+    }
+
 
     /* Private Utility Functions */
 
@@ -739,226 +1444,470 @@ public class Board implements Serializable, Cloneable {
      * To capture pairs of stones on the board based on the last move
      *     made by the player. E.g. if the last move was WBBW, we capture the
      *     pair of BB, and set new stone sequence to WOOW.
-     * @param a_color a character. The color of the player making the move
-     * @param a_row an integer. The row index of the move
-     * @param a_column an integer. The column index of the move
+     * @param a_stone a byte. The stone code of the player making the move
+     * @param a_square an integer. The square the stone was placed on
      * @return The number of pairs captured, an integer
      */
     /*
     Algorithm:
-        1) Get the sequences of stones in each direction, not cardinal
+        1) Walk out from the stone in each direction, not cardinal
             as we don't need to check for captures in the same direction
-        2) See if the sequence is the proper length and forms a pair
-        3) If so, capture the pair by setting the sequence to null stones
+        2) See if the opponent's stones form a pair, closed off by our own stone
+        3) If so, capture the pair by setting the squares to empty and
+            record the direction so the capture can be undone
      */
-    private int CapturePairs(char a_color, int a_row, int a_column) {
+    private int CapturePairs(byte a_stone, int a_square) {
         // Holds the number of PositionPairs captured
         int capturedPairs = 0;
+        m_currMove.capturedDirections = 0;
 
-        // Length of sequence to check for capture
-        // We need to add 2 to the capture number as we need to check the first and last stone
-        final int SEQ_LENGTH = CAPTURE_NUM + 2;
-
-        Vector<String> directionSeqs = ColorSeq(SEQ_LENGTH, a_row, a_column);
-
-        String currSeq;
-        for (int i = 0; i < directionSeqs.size(); i++) {
-            currSeq = directionSeqs.get(i);
-            // Guard clauses to prevent invalid captures
-            // If not the proper length, we cannot have a capture
-            if (currSeq.length() != SEQ_LENGTH) {
+        final byte OTHER_STONE = OtherStone(a_stone);
+        int offset; int step;
+        for (int direction = 0; direction < NUM_DIRECTIONS; direction++) {
+            offset = DIRECTION_OFFSET[direction];
+            if (!IsCapture(a_stone, OTHER_STONE, a_square, offset)) {
                 continue;
             }
 
-            // If the first and last stone are not the same color, we cannot have a capture
-            char firstStone = currSeq.charAt(0); char lastStone = currSeq.charAt(currSeq.length() - 1);
-            if (firstStone != lastStone) {
-                continue;
+            capturedPairs++;
+            m_currMove.capturedDirections |= 1 << direction;
+            for (step = 1; step <= CAPTURE_NUM; step++) {
+                ClearSquare(a_square + step * offset);
             }
 
-            // Get the middle of the sequence
-            String captureSeq = currSeq.substring(1, currSeq.length() - 1);
-            // If the sequence contains all the same stones and the first stone is not the same color as the player
-            if (CountSameStones(captureSeq) == CAPTURE_NUM && captureSeq.charAt(0) != a_color) {
-                capturedPairs++;
+            // Update the number of intersections left based on the number of captures
+            m_currMove.intersectLeft += CAPTURE_NUM;
+        }
 
-                // Set a string to the length of the capture sequence (no better way to do this in Java)
-                StringBuilder nullSeq = new StringBuilder(CAPTURE_NUM);
-                for (int j = 0; j < CAPTURE_NUM; j++) { nullSeq.append(NULL_PIECE); }
+        return capturedPairs;
+    }
 
-                directionSeqs.set(i, firstStone + nullSeq.toString() + lastStone);
+    /**
+     * To check if a stone on a square captures the pair next to it in a direction
+     * @param a_stone a byte. The stone code of the player on the square
+     * @param a_other a byte. The stone code of the opponent
+     * @param a_square an integer. The square of the stone
+     * @param a_offset an integer. The offset of the direction, see DIRECTION_OFFSET
+     * @return true if the pair is captured, false otherwise
+     */
+    private boolean IsCapture(byte a_stone, byte a_other, int a_square, int a_offset) {
+        // Pair must be all the opponent's stones - border stops us from going off the board
+        for (int step = 1; step <= CAPTURE_NUM; step++) {
+            if (m_squares[a_square + step * a_offset] != a_other) {
+                return false;
+            }
+        }
+        // Sequence must be closed off by our own stone to capture
+        return m_squares[a_square + (CAPTURE_NUM + 1) * a_offset] == a_stone;
+    }
 
-                // Update the number of intersections left based on the number of captures
-                m_currMove.intersectLeft += CAPTURE_NUM;
+    /**
+     * To check if a packed window of intersections holds a pair that could be
+     *     captured in the next ply, once a stone is placed in the middle.
+     *     E.g. WBBO -> potential capture for black, OBBW -> potential capture for black
+     * @param a_stone a byte. The stone code of the player placing in the middle
+     * @param a_window an integer. The packed window, see CAPTURE_WINDOW
+     * @return true if there is a potential capture, false otherwise
+     */
+    /*
+    Algorithm:
+        1) Unpack the window, putting our stone in the middle
+        2) Slide along the window looking for our stones CAPTURE_NUM long, with an
+            empty intersection on one end and the opponent's stone on the other.
+            The ends cannot both be the same color, and the border matches neither
+     */
+    private static boolean IsCaptureThreat(byte a_stone, int a_window) {
+        final int STONE_MASK = (1 << STONE_BITS) - 1;
+        final int SEQ_LENGTH = CAPTURE_NUM + 2;
+
+        byte[] stones = new byte[CAPTURE_WINDOW];
+        for (int step = CAPTURE_WINDOW - 1; step >= 0; step--) {
+            stones[step] = (byte) (a_window & STONE_MASK);
+            a_window >>= STONE_BITS;
+        }
+        stones[CAPTURE_RADIUS] = a_stone;
+
+        for (int start = 0; start + SEQ_LENGTH <= CAPTURE_WINDOW; start++) {
+            boolean isPair = true;
+            for (int step = 1; step <= CAPTURE_NUM; step++) {
+                isPair &= stones[start + step] == a_stone;
+            }
+            if (!isPair) {
+                continue;
+            }
+
+            byte first = stones[start]; byte last = stones[start + SEQ_LENGTH - 1];
+            if ((first == EMPTY_SQUARE && last == OtherStone(a_stone))
+                    || (first == OtherStone(a_stone) && last == EMPTY_SQUARE)) {
+                return true;
             }
         }
-        // Update the board based on new sequences
-        UpdateSeqs(directionSeqs, a_row, a_column);
+        return false;
+    }
 
-        return capturedPairs;
+    /**
+     * To push the current move on to the stack of previous moves, packed
+     *     into a single record, growing the stack if it is full
+     */
+    private void PushMove() {
+        if (m_shared) { Unshare(); }
+        if (m_numPrevMoves == m_prevMoves.length) {
+            m_prevMoves = Arrays.copyOf(m_prevMoves, m_prevMoves.length * 2);
+        }
+        m_prevMoves[m_numPrevMoves++] = m_currMove.cell
+                | (m_currMove.capturedDirections << RECORD_DIRECTION_SHIFT)
+                | (m_currMove.winInARow << RECORD_WIN_SHIFT)
+                | (m_currMove.capturedPairs << RECORD_PAIRS_SHIFT);
     }
 
     /**
-     * To get count of the same colors stones in a sequence at each
-     *     cardinal direction, i.e. horizontal, vertical and the two diagonals
-     * @param a_n an integer. The number of stones out from the intersection to check for
-     * @param a_row an integer. The row index of the intersection to check
-     * @param a_column an integer. The column index of the intersection to check
-     * @return The number of stones in a row at each cardinal direction,
-     *     a vector of integers
+     * To check if a stone can be placed on a cell
+     * @param a_cell an integer. The cell index, row * BOARD_SIZE + column
+     * @return SUCCESS if a stone can be placed, otherwise the reason it can't
      */
     /*
     Algorithm:
-        1) Get the sequences of stones in each direction
-        2) Count the number of stones in a row in each direction
-        3) Combine the opposite directions, e.g. horizontal and vertical
+        1) Ensure that the cell is within the board
+        2) Check if there are any restrictions on where the stone can be placed
+        3) Ensure there are no stones already placed on the intersection
+        4) If there already winner or board is full, we cannot place a stone
+          as game is over
      */
-    private Vector<Integer> CardinalCount(int a_n, int a_row, int a_column)  {
-        // Represents cardinal directions
-        final int PLANES = NUM_DIRECTIONS / 2;
-        Vector<Integer> counts = new Vector<>();
-        counts.setSize(PLANES);
+    private Codes.ReturnCode CheckPlacement(int a_cell) {
+        // We could put the guard clauses to protect against invalid moves in
+        // PlaceStone itself, but the same checks are needed to see if a cell is legal.
 
-        Vector<String> seqs = ColorSeq(a_n, a_row, a_column);
+        // Position must be within the board
+        if (a_cell < 0 || a_cell >= NUM_CELLS) {
+            return Codes.ReturnCode.INVALID_MOVE;
+        }
+        // Check if we have a restriction on where stone can be placed
+        int distance = AwayFromCenter(a_cell / BOARD_SIZE, a_cell % BOARD_SIZE);
+        if ((m_currMove.innerBounds > distance) || (distance > m_currMove.outerBounds)) {
+            return Codes.ReturnCode.INVALID_MOVE;
+        }
+        // Can't place stone if square is already occupied
+        if (m_squares[CELL_TO_SQUARE[a_cell]] != EMPTY_SQUARE) {
+            return Codes.ReturnCode.SPACE_OCCUPIED;
+        }
+        // Can't place a stone if there is a winner
+        if (m_currMove.winInARow > 0) {
+            return Codes.ReturnCode.ALREADY_WINNER;
+        }
+        // If board is full, we cannot place a stone
+        if (IsBoardFull()) {
+            return Codes.ReturnCode.FULL_BOARD;
+        }
+        return Codes.ReturnCode.SUCCESS;
+    }
 
-        // Need to combine the 8 directions into 4, i.e. combine the opposite directions
-        int firstSeqCount, secondSeqCount;
-        for(int direction = 0; direction < PLANES; direction++) {
-            // Add cardinal and ordinal directions together
-            // We return the number of times we have this sequence
-            // We do not check if there is more than n - not our problem
-            firstSeqCount = CountSameStones(seqs.get(direction));
-            secondSeqCount = CountSameStones(seqs.get(direction + PLANES));
-            counts.set(direction, firstSeqCount + secondSeqCount);
+    /**
+     * To put a stone on a square, keeping the bitboards, Zobrist key, line counts and near cells in sync
+     * @param a_square an integer. The square to put the stone on, must be empty
+     * @param a_stone a byte. The stone code, WHITE_STONE or BLACK_STONE
+     */
+    private void SetSquare(int a_square, byte a_stone) {
+        if (m_shared) { Unshare(); }
+        UpdateLineCounts(a_square, a_stone, 1);
+        UpdateNearCells(a_square, 1);
+        m_squares[a_square] = a_stone;
+        GetStones(a_stone).Set(SQUARE_TO_CELL[a_square]);
+        m_zobristKey ^= Zobrist.STONE_KEYS[a_stone][SQUARE_TO_CELL[a_square]];
+    }
+
+    /**
+     * To remove the stone from a square, keeping the bitboards, Zobrist key, line counts and near cells in sync
+     * @param a_square an integer. The square to remove the stone from, must have a stone
+     */
+    private void ClearSquare(int a_square) {
+        if (m_shared) { Unshare(); }
+        UpdateLineCounts(a_square, m_squares[a_square], -1);
+        UpdateNearCells(a_square, -1);
+        GetStones(m_squares[a_square]).Clear(SQUARE_TO_CELL[a_square]);
+        m_zobristKey ^= Zobrist.STONE_KEYS[m_squares[a_square]][SQUARE_TO_CELL[a_square]];
+        m_squares[a_square] = EMPTY_SQUARE;
+    }
+
+    /**
+     * To change the line counts for a stone put on or taken off a square,
+     *     only looking at the windows through it
+     * @param a_square an integer. The square that changes
+     * @param a_stone a byte. The stone code put on or taken off
+     * @param a_sign an integer. 1 if the stone is put on, -1 if taken off
+     */
+    /*
+    Algorithm:
+        1) Walk the WIN_SCORE - 1 squares either side of the square in each cardinal
+            plane, counting the stones in the last WIN_SCORE squares as if the square
+            was empty. The square is in every window ending on it or after it
+        2) For each of those windows on the board, take away what it counted for
+            before the change and add what it counts for after, see CountWindow
+     */
+    private void UpdateLineCounts(int a_square, byte a_stone, int a_sign) {
+        final int WHITE_ADDED = (a_stone == WHITE_STONE) ? 1 : 0;
+        final int BLACK_ADDED = (a_stone == BLACK_STONE) ? 1 : 0;
+
+        for (int plane = 0; plane < NUM_PLANES; plane++) {
+            final int OFFSET = DIRECTION_OFFSET[plane];
+            int white = 0; int black = 0; int border = 0;
+            for (int step = 1 - WIN_SCORE; step < WIN_SCORE; step++) {
+                // Add the square entering the window, the changing square counts as empty
+                byte entering = (step == 0) ? EMPTY_SQUARE : m_squares[a_square + step * OFFSET];
+                if (entering == WHITE_STONE) { white++; }
+                else if (entering == BLACK_STONE) { black++; }
+                else if (entering == BORDER_SQUARE) { border++; }
+
+                // Take away the square leaving the window
+                if (step > 0) {
+                    byte leaving = m_squares[a_square + (step - WIN_SCORE) * OFFSET];
+                    if (leaving == WHITE_STONE) { white--; }
+                    else if (leaving == BLACK_STONE) { black--; }
+                    else if (leaving == BORDER_SQUARE) { border--; }
+                }
+                if (step < 0 || border > 0) {
+                    continue;
+                }
+
+                CountWindow(white, black, -a_sign);
+                CountWindow(white + WHITE_ADDED, black + BLACK_ADDED, a_sign);
+            }
         }
+    }
 
-        return counts;
+    /**
+     * To add a window to the line counts, or take it away
+     * @param a_white an integer. The white stones in the window
+     * @param a_black an integer. The black stones in the window
+     * @param a_sign an integer. 1 to add the window, -1 to take it away
+     */
+    private void CountWindow(int a_white, int a_black, int a_sign) {
+        if (a_black == 0 && a_white > 0) { m_lineCounts[WHITE_STONE][a_white] += a_sign; }
+        else if (a_white == 0 && a_black > 0) { m_lineCounts[BLACK_STONE][a_black] += a_sign; }
     }
 
     /**
-     * To count the number of uninterrupted stones in a row in a sequence
-     * @param a_seq a final string reference. The sequence of stones to check
-     * @return
+     * To update the near counts for a stone put on or taken off a square
+     * @param a_square an integer. The square that changes
+     * @param a_sign an integer. 1 if a stone is put on, -1 if taken off
      */
-    private static int CountSameStones(final String a_seq) {
-        // All sequences should be starting from closest to center stone
-        // Holds the number of stones in a row
-        int count = 0;
-        // Check if all elements in the vector are the same
-        for (int i = 0; i < a_seq.length(); i++) {
-            // Stop when we hit a stone that isn't the same - or if null piece
-            // Counts the middle piece color - we don't care what color it is
-            if (a_seq.charAt(i) != a_seq.charAt(0) || a_seq.charAt(i) == NULL_PIECE) {
-                break;
+    /*
+    Algorithm:
+        1) Change the count of every square within CANDIDATE_DISTANCE of the square
+        2) A cell is near once its count goes above 0, and no longer once it is back to 0.
+            The border is wide enough that no square leaves the board, its squares have no cell
+     */
+    private void UpdateNearCells(int a_square, int a_sign) {
+        for (int offset : NEAR_OFFSETS) {
+            final int SQUARE = a_square + offset;
+            final int CELL = SQUARE_TO_CELL[SQUARE];
+            m_nearCounts[SQUARE] += a_sign;
+            if (CELL == -1) {
+                continue;
             }
-            // Increment count if we have the same stone
-            count++;
+            if (a_sign > 0 && m_nearCounts[SQUARE] == 1) { m_nearCells.Set(CELL); }
+            else if (a_sign < 0 && m_nearCounts[SQUARE] == 0) { m_nearCells.Clear(CELL); }
         }
-        return count;
     }
 
     /**
-     * To get the sequence of stones in each direction from a specific
-     *     intersection on the board.
-     * @param a_n an integer. The number of stones out from the intersection to check for
-     * @param a_row an integer. The row index of the intersection to check
-     * @param a_column an integer. The column index of the intersection to check
-     * @return The sequence of stones in each direction, a vector of strings
+     * To fill a set of words with the candidate cells, see GetCandidateCells
+     * @param a_words a long array of BitBoard.NUM_WORDS. Filled with a bit for each candidate cell
      */
     /*
     Algorithm:
-        1) For each direction get the offset based on the delta of the direction
-        2) If offset is not valid, we cannot get the sequence
-        3) Get the sequence of stones in each direction
+        1) No moves if there is a winner or the board is full
+        2) Take the empty cells near a stone, they are kept up to date as stones change
+        3) Keep the cells within the bounds restriction, there is only one in the opening
+        4) If none are left, fall back to every legal cell
      */
-    private Vector<String> ColorSeq(int a_n, int a_row, int a_column)  {
-        Vector<String> colorSeq = new Vector<String>();
-        colorSeq.setSize(NUM_DIRECTIONS);
+    private void FillCandidateWords(long[] a_words) {
+        Arrays.fill(a_words, 0);
+        if (IsWinningMove() || IsBoardFull()) {
+            return;
+        }
 
-        PositionPair rawPosition = new PositionPair();
-        StringBuilder currSeq;
-        // Sequence starts from center stone and goes outwards
-        for (int direction = 0; direction < NUM_DIRECTIONS; direction++) {
-            currSeq = new StringBuilder();
-            // Will start on the current row and column
-            for (int step = 0; step < a_n; step++) {
-                rawPosition.row = a_row; rawPosition.column = a_column;
-                // Check if we are at a valid index for our row and column
-                if (!OffsetIndices(rawPosition, direction, step)) {
-                    break;
+        m_nearCells.GetEmptyCells(m_whiteStones, m_blackStones, a_words);
+        boolean restricted = m_currMove.innerBounds > 0 || m_currMove.outerBounds < BOARD_SIZE;
+        boolean found = false;
+        for (int word = 0; word < BitBoard.NUM_WORDS; word++) {
+            long bits = a_words[word];
+            while (restricted && bits != 0) {
+                int cell = word * BitBoard.WORD_SIZE + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+
+                int distance = AwayFromCenter(cell / BOARD_SIZE, cell % BOARD_SIZE);
+                if (distance < m_currMove.innerBounds || distance > m_currMove.outerBounds) {
+                    a_words[word] &= ~(1L << (cell % BitBoard.WORD_SIZE));
                 }
-                // Add the current stone at the index to the sequence
-                currSeq.append(m_gameBoard.get(rawPosition.row).get(rawPosition.column));
             }
-            colorSeq.set(direction, currSeq.toString());
+            found |= a_words[word] != 0;
+        }
+        if (found) {
+            return;
+        }
+
+        for (int cell = 0; cell < NUM_CELLS; cell++) {
+            if (CheckPlacement(cell) == Codes.ReturnCode.SUCCESS) {
+                a_words[cell / BitBoard.WORD_SIZE] |= 1L << (cell % BitBoard.WORD_SIZE);
+            }
+        }
+    }
+
+    /**
+     * To make this board's own copy of the members it shares with clones,
+     *     so changing them does not change any other board
+     */
+    private void Unshare() {
+        m_squares = m_squares.clone();
+        m_whiteStones = m_whiteStones.clone();
+        m_blackStones = m_blackStones.clone();
+        m_nearCounts = m_nearCounts.clone();
+        m_nearCells = m_nearCells.clone();
+        m_prevMoves = m_prevMoves.clone();
+        m_shared = false;
+    }
+
+    /**
+     * To get the padded squares of the board, for reading only
+     * @return The squares, see PADDED_SIZE. Must not be changed
+     */
+    byte[] GetSquares() {
+        return m_squares;
+    }
+
+    /**
+     * To get the bitboard of a player's stones
+     * @param a_stone a byte. The stone code of the player
+     * @return The bitboard for the stone, null if not a player's stone
+     */
+    private BitBoard GetStones(byte a_stone) {
+        if (a_stone == WHITE_STONE) { return m_whiteStones; }
+        else if (a_stone == BLACK_STONE) { return m_blackStones; }
+        else { return null; }
+    }
+
+    /**
+     * To set the player to move next, keeping the Zobrist key in sync
+     * @param a_stone a byte. The stone code of the next player
+     */
+    private void SetNextStone(byte a_stone) {
+        if (m_nextStone != a_stone) {
+            m_zobristKey ^= Zobrist.BLACK_TO_MOVE_KEY;
         }
+        m_nextStone = a_stone;
+    }
 
-        return colorSeq;
+    /**
+     * To set the total pairs captured by a player, keeping the Zobrist key in sync
+     * @param a_stone a byte. The stone code of the player
+     * @param a_pairs an integer. The total number of pairs captured
+     */
+    private void SetCapturedTotal(byte a_stone, int a_pairs) {
+        m_zobristKey ^= Zobrist.CAPTURE_KEYS[a_stone][m_capturedTotals[a_stone]]
+                ^ Zobrist.CAPTURE_KEYS[a_stone][a_pairs];
+        m_capturedTotals[a_stone] = a_pairs;
     }
 
     /**
-     * To update the board based on the sequences of stones in each
-     *     direction from a specific intersection on the board.
-     * @param a_seq a final vector of strings reference. The sequence of stones
-     *      in each direction to update the board with
-     * @param a_row an integer. The row index of the intersection to update
-     * @param a_column an integer. The column index of the intersection to update
-     * @return The success of updating the sequences, a boolean value
+     * To compute the Zobrist key of the position from scratch, i.e. when
+     *     the whole board is replaced at once
+     * @return The Zobrist key of the current position, a long
+     */
+    private long ComputeZobristKey() {
+        long key = 0;
+        for (int cell = 0; cell < Zobrist.NUM_CELLS; cell++) {
+            byte stone = m_squares[CELL_TO_SQUARE[cell]];
+            if (stone == WHITE_STONE || stone == BLACK_STONE) {
+                key ^= Zobrist.STONE_KEYS[stone][cell];
+            }
+        }
+        for (byte stone = WHITE_STONE; stone <= BLACK_STONE; stone++) {
+            key ^= Zobrist.CAPTURE_KEYS[stone][m_capturedTotals[stone]];
+        }
+        key ^= Zobrist.INNER_BOUNDS_KEYS[m_currMove.innerBounds]
+                ^ Zobrist.OUTER_BOUNDS_KEYS[m_currMove.outerBounds];
+        if (m_nextStone == BLACK_STONE) {
+            key ^= Zobrist.BLACK_TO_MOVE_KEY;
+        }
+        return key;
+    }
+
+    /**
+     * To count the windows of every line from scratch, i.e. when the whole
+     *     board is replaced at once
      */
     /*
     Algorithm:
-        1) Check if the size of the sequence vector is the proper length
-        2) For every direction in the sequence, update the board based on it
+        1) Walk along every line of every cardinal plane, from the square after the border
+        2) Keep a count of each player's stones in the last WIN_SCORE squares
+        3) Count each full window holding only one player's stones
      */
-    private boolean UpdateSeqs(final Vector<String> a_seq, int a_row, int a_column) {
-        // Something went horribly wrong - sequences must include all directions
-        if (a_seq.size() != NUM_DIRECTIONS) {
-            return false;
-        }
+    private void ResetLineCounts() {
+        m_lineCounts = new int[BLACK_STONE + 1][WIN_SCORE + 1];
+        for (int plane = 0; plane < NUM_PLANES; plane++) {
+            final int OFFSET = DIRECTION_OFFSET[plane];
+            for (int cell = 0; cell < NUM_CELLS; cell++) {
+                // Only start where the line does, i.e. the square before is off the board
+                int start = CELL_TO_SQUARE[cell];
+                if (m_squares[start - OFFSET] != BORDER_SQUARE) {
+                    continue;
+                }
 
-        PositionPair rawPosition = new PositionPair();
-        for (int direction = 0; direction < NUM_DIRECTIONS; direction++) {
-            for (int step = 0; step < a_seq.get(direction).length(); step++) {
-                rawPosition.row = a_row; rawPosition.column = a_column;
-                // Check if we are at a valid index for our row and column
-                // If it's not, something is wrong with the sequence
-                if (!OffsetIndices(rawPosition, direction, step)){
-                    return false;
+                int white = 0; int black = 0;
+                int length = 0;
+                for (int square = start; m_squares[square] != BORDER_SQUARE; square += OFFSET) {
+                    if (m_squares[square] == WHITE_STONE) { white++; }
+                    else if (m_squares[square] == BLACK_STONE) { black++; }
+                    length++;
+
+                    if (length > WIN_SCORE) {
+                        byte leaving = m_squares[square - WIN_SCORE * OFFSET];
+                        if (leaving == WHITE_STONE) { white--; }
+                        else if (leaving == BLACK_STONE) { black--; }
+                    }
+                    if (length >= WIN_SCORE) {
+                        CountWindow(white, black, 1);
+                    }
                 }
-                // Update the board based the current stone
-                m_gameBoard.get(rawPosition.row).set(rawPosition.column, a_seq.get(direction).charAt(step));
             }
         }
-        return true;
     }
 
     /**
-     * To offset the row and column indices based on the direction
-     *     and step. E.g. if direction is 0 and step is 2, we offset the row
-     *     by 2 and column by 0.
-     * @param a_rawPosition a PositionPair object passed by reference. The raw position
-     * @param a_direction an integer. The direction to offset the indices
-     * @param a_step an integer. The number of steps to offset the indices
-     * @return If the offset indices are valid, a boolean value
+     * To count the stones near every square from scratch, i.e. when the whole
+     *     board is replaced at once
      */
-    private static boolean OffsetIndices(PositionPair a_rawPosition, int a_direction, int a_step) {
-        a_rawPosition.row += (ROW_DELTA[a_direction] * a_step);
-        a_rawPosition.column += (COLUMN_DELTA[a_direction] * a_step);
-
-        return IsValidIndex(a_rawPosition.row , a_rawPosition.column);
+    private void ResetNearCells() {
+        m_nearCounts = new byte[NUM_SQUARES];
+        m_nearCells = new BitBoard();
+        for (int cell = 0; cell < NUM_CELLS; cell++) {
+            byte stone = m_squares[CELL_TO_SQUARE[cell]];
+            if (stone == WHITE_STONE || stone == BLACK_STONE) {
+                UpdateNearCells(CELL_TO_SQUARE[cell], 1);
+            }
+        }
     }
 
     /**
-     * To initialize the game board to a 2D vector of null pieces
+     * To initialize the game board to an empty board surrounded by the border
      */
     private void InitGameBoard() {
-        m_gameBoard = new Vector<Vector<Character>>();
-        for (int row = 0; row < BOARD_SIZE; row++) {
-            m_gameBoard.add(new Vector<Character>());
-            for (int column = 0; column < BOARD_SIZE; column++) {
-                m_gameBoard.get(row).add(NULL_PIECE);
-            }
+        m_squares = NewSquares();
+    }
+
+    /**
+     * To create a new set of squares, all intersections empty and every
+     *     square off of the board set to the border
+     * @return The new squares, a byte array of NUM_SQUARES
+     */
+    private static byte[] NewSquares() {
+        byte[] squares = new byte[NUM_SQUARES];
+        for (int square = 0; square < NUM_SQUARES; square++) {
+            int row = square / PADDED_SIZE - PADDING;
+            int column = square % PADDED_SIZE - PADDING;
+            squares[square] = IsValidIndex(row, column) ? EMPTY_SQUARE : BORDER_SQUARE;
         }
+        return squares;
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,108 @@
+//
+//  Immutable snapshot of a board - safe to read from any thread without locks
+//
+
+package edu.ramapo.rpodziel.pente.model;
+
+import java.io.Serializable;
+
+public final class BoardSnapshot implements Serializable {
+    /* Private Members */
+
+    // Stone code on every cell, row major: cell = row * BOARD_SIZE + column
+    // Never changed after construction, all members are final so the snapshot
+    // can be handed to another thread without any locking
+    private final byte[] m_stones;
+
+    // Board version the snapshot was taken at, changes on every change to the board
+    private final long m_version;
+
+    private final int m_innerBounds;
+    private final int m_outerBounds;
+    private final int m_lastCell;
+
+
+    /* Constructors */
+
+    /**
+     * To create a snapshot of a board, only the board itself makes one
+     * @param a_stones a byte array of Board.NUM_CELLS. The stone code on each cell,
+     *           owned by the snapshot from now on
+     * @param a_version a long. The version of the board
+     * @param a_innerBounds an integer. The inner bounds restriction of the board
+     * @param a_outerBounds an integer. The outer bounds restriction of the board
+     * @param a_lastCell an integer. The cell of the last stone placed, NO_CELL if none
+     */
+    BoardSnapshot(byte[] a_stones, long a_version, int a_innerBounds, int a_outerBounds,
+                  int a_lastCell) {
+        m_stones = a_stones;
+        m_version = a_version;
+        m_innerBounds = a_innerBounds;
+        m_outerBounds = a_outerBounds;
+        m_lastCell = a_lastCell;
+    }
+
+
+    /* Accessors */
+
+    /**
+     * To get the version of the board the snapshot was taken at
+     * @return The version, a long. Higher is newer for the same board
+     */
+    public long GetVersion() {
+        return m_version;
+    }
+
+    /**
+     * To get the piece on an intersection of the board
+     * @param a_row an integer. The row index
+     * @param a_column an integer. The column index
+     * @return The piece, e.g. 'W' for white or Board.NULL_PIECE if empty or off the board
+     */
+    public char GetPiece(int a_row, int a_column) {
+        if (!Board.IsValidIndex(a_row, a_column)) {
+            return Board.NULL_PIECE;
+        }
+        return Board.ToPiece(m_stones[Board.ToCell(a_row, a_column)]);
+    }
+
+    public int GetInnerBounds() {
+        return m_innerBounds;
+    }
+
+    public int GetOuterBounds() {
+        return m_outerBounds;
+    }
+
+    /**
+     * To check if an intersection is within the bounds restriction
+     * @param a_row an integer. The row index
+     * @param a_column an integer. The column index
+     * @return true if a stone may be placed there by bounds alone, false otherwise
+     */
+    public boolean IsWithinBounds(int a_row, int a_column) {
+        int distance = Board.AwayFromCenter(a_row, a_column);
+        return m_innerBounds <= distance && distance <= m_outerBounds;
+    }
+
+    /**
+     * To get the cell of the last stone placed
+     * @return The cell index, Board.NO_CELL if there is none
+     */
+    public int GetLastIndex() {
+        return m_lastCell;
+    }
+
+    /**
+     * To get the position of the last stone placed, e.g. "J10"
+     * @return The position string, Board.DEFAULT_LAST_POSITION if there is none
+     */
+    public String GetLastPosition() {
+        return Board.CellToPosition(m_lastCell);
+    }
+
+
+    /* Main for Debug */
+    public static void main(String[] args) { }
+
+}
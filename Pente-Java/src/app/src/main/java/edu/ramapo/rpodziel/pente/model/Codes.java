@@ -22,10 +22,15 @@ public class Codes {
         ALREADY_WINNER,
         INVALID_BOUNDS,
         NO_PREV_MOVES,
+        INVALID_COLOR,
 
         // Player's codes
         INVALID_INC,
         INVALID_NAME,
+        CANCELLED,
+
+        // Search engine's codes
+        INVALID_SEARCH,
 
         // Round's codes
         SERIALIZE,
@@ -33,6 +38,7 @@ public class Codes {
         INVALID_PLAYER,
         NULL_PLAYER,
         SAME_COLOR,
+        BUSY,
 
         // Serialize codes
         LOAD_ERROR,
@@ -83,6 +89,9 @@ public class Codes {
             case NO_PREV_MOVES:
                 errorMessage = "No previous moves: Cannot undo move if there are no previous moves!";
                 break;
+            case INVALID_COLOR:
+                errorMessage = "Invalid color: Only a player's stone can be placed on the board!";
+                break;
 
             // Player's codes
             case INVALID_INC:
@@ -91,6 +100,14 @@ public class Codes {
             case INVALID_NAME:
                 errorMessage = "Invalid name: Name must be a valid string!";
                 break;
+            case CANCELLED:
+                errorMessage = "Cancelled: The move was stopped before it was made!";
+                break;
+
+            // Search engine's codes
+            case INVALID_SEARCH:
+                errorMessage = "Invalid search setting: Depth and time must be positive!";
+                break;
 
             // Round's codes
             case SERIALIZE:
@@ -105,6 +122,9 @@ public class Codes {
             case NULL_PLAYER:
                 errorMessage = "Null player: Player cannot be null!";
                 break;
+            case BUSY:
+                errorMessage = "Busy: Wait for the ply being made to finish!";
+                break;
 
             // Serialize codes
             case LOAD_ERROR:
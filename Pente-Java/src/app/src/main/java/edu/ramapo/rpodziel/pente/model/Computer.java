@@ -13,6 +13,8 @@ public class Computer extends Player {
     /* Constructor */
     public Computer() {
         super(DEFAULT_NAME);
+        // Search on every core the device has
+        m_searchThreads = Math.min(Runtime.getRuntime().availableProcessors(), SearchEngine.MAX_THREADS);
     }
 
 
@@ -27,12 +29,16 @@ public class Computer extends Player {
      *     stone on the board
      * @param a_board a Board object, the board to place the stone on
      * @param a_nextPlayer a Player object, the next player who's ply it is
-     * @return a Codes.ReturnCode, the status of the move
+     * @return a Codes.ReturnCode, the status of the move. CANCELLED if the move
+     *     was cancelled while it was being found, see CancelMove
      */
     @Override
     public Codes.ReturnCode MakeMove(Board a_board, final Player a_nextPlayer) {
         // Sets the best move for the computer
         BestMove(a_board, a_nextPlayer);
+        if (m_cancelled) {
+            return Codes.ReturnCode.CANCELLED;
+        }
 
         Codes.ReturnCode status = a_board.PlaceStone(m_color, m_bestMove.position);
         // Log if successful
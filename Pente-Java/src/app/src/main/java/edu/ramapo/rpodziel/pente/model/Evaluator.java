@@ -0,0 +1,65 @@
+//
+//  Static evaluation of a whole board position, used at the leaves of the search
+//
+
+package edu.ramapo.rpodziel.pente.model;
+
+public final class Evaluator {
+    /* Class Constants */
+
+    // Score of a won position, anything within MAX_PLY of it is a forced win
+    public static final int WIN_VALUE = 1000000;
+    public static final int MAX_PLY = 64;
+
+    // Score of a window of WIN_SCORE intersections holding only one player's stones,
+    // indexed by the number of stones in it. Each extra stone is worth much more,
+    // 4 in a window is one move away from winning
+    static final int[] LINE_WEIGHTS = {0, 1, 12, 150, 2000, 0};
+
+    // Score of a player's captured pairs, indexed by the number of pairs
+    static final int[] CAPTURE_WEIGHTS = {0, 300, 700, 1500, 4000, 0};
+    // Score of every intersection where a player could capture next move
+    static final int CAPTURE_THREAT_WEIGHT = 150;
+
+    private Evaluator() {}
+
+
+    /* Public Utility Functions */
+
+    /**
+     * To evaluate a position for the player to move, i.e. how good the
+     *     position is for them. Does not look for wins, the search finds those.
+     * @param a_board a final Board object, the position to evaluate
+     * @return The score of the position, an integer. Positive is good for the
+     *     player to move, negative is good for the opponent
+     */
+    /*
+    Algorithm:
+        1) Score the windows of WIN_SCORE intersections holding only one player's
+            stones, white's minus black's. The board keeps their counts up to date
+            as stones are placed, captured and undone, so nothing is scanned
+        2) Add the pairs captured and the captures available next move for white,
+            take away the same for black
+        3) Flip the sign if black is to move
+     */
+    public static int Evaluate(final Board a_board) {
+        int score = 0;
+        for (int stones = 1; stones < Board.WIN_SCORE; stones++) {
+            score += LINE_WEIGHTS[stones] * (a_board.GetLineCount(Board.WHITE_STONE, stones)
+                    - a_board.GetLineCount(Board.BLACK_STONE, stones));
+        }
+
+        int whitePairs = Math.min(a_board.GetTotalCapturedPairs(Player.WHITE_CHAR), Board.CAPTURE_WIN);
+        int blackPairs = Math.min(a_board.GetTotalCapturedPairs(Player.BLACK_CHAR), Board.CAPTURE_WIN);
+        score += CAPTURE_WEIGHTS[whitePairs] - CAPTURE_WEIGHTS[blackPairs];
+        score += CAPTURE_THREAT_WEIGHT * (a_board.GetCaptureMoves(Player.WHITE_CHAR)
+                - a_board.GetCaptureMoves(Player.BLACK_CHAR));
+
+        return (a_board.GetNextColor() == Player.WHITE_CHAR) ? score : -score;
+    }
+
+
+    /* Main for Debug */
+    public static void main(String[] args) { }
+
+}
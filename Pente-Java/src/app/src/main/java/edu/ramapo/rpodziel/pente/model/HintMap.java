@@ -0,0 +1,213 @@
+//
+//  Hint map - the score of every move on the board, for the player and for their opponent
+//
+
+package edu.ramapo.rpodziel.pente.model;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class HintMap {
+    /* Class Constants */
+
+    // Score of a cell that can't be played, e.g. taken or outside the bounds
+    public static final int NO_SCORE = Player.DEFAULT_EVAL;
+    public static final int DEFAULT_TOP_MOVES = 3;
+
+
+    /* Private Members */
+
+    // Score of each cell as if the player placed there, and as if the opponent did,
+    // see Player.EvaluateScore. Indexed by the cell, row * BOARD_SIZE + column
+    private final int[] m_ourScores;
+    private final int[] m_theirScores;
+    private final char m_color;
+    private final char m_otherColor;
+
+
+    /* Constructors */
+
+    /**
+     * @param a_color a character. The color of the player the map is for
+     * @param a_otherColor a character. The color of their opponent
+     */
+    HintMap(char a_color, char a_otherColor) {
+        m_ourScores = new int[Board.NUM_CELLS];
+        m_theirScores = new int[Board.NUM_CELLS];
+        m_color = a_color;
+        m_otherColor = a_otherColor;
+    }
+
+
+    /* Accessors */
+
+    public char GetColor() {
+        return m_color;
+    }
+
+    public char GetOtherColor() {
+        return m_otherColor;
+    }
+
+    /**
+     * To get how good a move is for the player, i.e. what placing there builds or wins
+     * @param a_cell an integer. The cell index, row * BOARD_SIZE + column
+     * @return The score, an integer. NO_SCORE if the cell can't be played
+     */
+    public int GetOurScore(int a_cell) {
+        return m_ourScores[a_cell];
+    }
+
+    /**
+     * To get how good a move would be for the opponent, i.e. what placing there stops
+     * @param a_cell an integer. The cell index, row * BOARD_SIZE + column
+     * @return The score, an integer. NO_SCORE if the cell can't be played
+     */
+    public int GetTheirScore(int a_cell) {
+        return m_theirScores[a_cell];
+    }
+
+    /**
+     * To get how good a move is overall, as the greedy strategy sees it
+     * @param a_cell an integer. The cell index, row * BOARD_SIZE + column
+     * @return The higher of the two scores, an integer. NO_SCORE if the cell can't be played
+     */
+    public int GetScore(int a_cell) {
+        return Math.max(m_ourScores[a_cell], m_theirScores[a_cell]);
+    }
+
+    /**
+     * To get the highest score on the board, e.g. to scale the map's shading by
+     * @return The highest score, an integer. NO_SCORE if no cell can be played
+     */
+    public int GetMaxScore() {
+        int max = NO_SCORE;
+        for (int cell = 0; cell < Board.NUM_CELLS; cell++) {
+            max = Math.max(max, GetScore(cell));
+        }
+        return max;
+    }
+
+    /**
+     * To get the best moves on the board, best first
+     * @param a_numMoves an integer. The most moves to get
+     * @return The cells of the moves, an integer array. Shorter than a_numMoves
+     *     if fewer cells can be played
+     */
+    /*
+    Algorithm:
+        1) Keep the best moves found so far sorted, best first
+        2) Insert each cell that can be played into place, dropping the last if full
+     */
+    public int[] GetTopCells(int a_numMoves) {
+        if (a_numMoves <= 0) {
+            return new int[0];
+        }
+        int[] top = new int[a_numMoves];
+        int numTop = 0;
+        for (int cell = 0; cell < Board.NUM_CELLS; cell++) {
+            int score = GetScore(cell);
+            if (score == NO_SCORE || (numTop == top.length && score <= GetScore(top[numTop - 1]))) {
+                continue;
+            }
+            int index = Math.min(numTop, top.length - 1);
+            while (index > 0 && GetScore(top[index - 1]) < score) {
+                top[index] = top[index - 1];
+                index--;
+            }
+            top[index] = cell;
+            numTop = Math.min(numTop + 1, top.length);
+        }
+        int[] cells = new int[numTop];
+        System.arraycopy(top, 0, cells, 0, numTop);
+        return cells;
+    }
+
+
+    /* Main for Debug */
+    public static void main(String[] args) { }
+
+
+    /* Public Utility Functions */
+
+    /**
+     * To score every move on the board for a player and for their opponent in one
+     *     pass, the rows scored in parallel
+     * @param a_player a final Player object. The player the map is for, scores as they do
+     * @param a_board a final Board object. The current state of the board, not changed
+     * @param a_otherColor a character. The color of the opponent
+     * @return The scores, a HintMap object
+     */
+    static HintMap Compute(final Player a_player, final Board a_board, char a_otherColor) {
+        HintMap map = new HintMap(a_player.GetColor(), a_otherColor);
+        ForkJoinPool.commonPool().invoke(map.new Rows(a_player, a_board, 0, Board.BOARD_SIZE));
+        return map;
+    }
+
+
+    /* Private Utility Functions */
+
+    // Scores a range of rows, splitting it in half until there is one row for each task
+    private final class Rows extends RecursiveAction {
+        private final Player m_player;
+        private final Board m_board;
+        private final int m_first;
+        private final int m_end;
+
+        Rows(Player a_player, Board a_board, int a_first, int a_end) {
+            m_player = a_player;
+            m_board = a_board;
+            m_first = a_first;
+            m_end = a_end;
+        }
+
+        /*
+        Algorithm:
+            1) Split more than one row in half, scoring both halves at once
+            2) Score a single row on its own copy of the board, see ScoreRow
+         */
+        @Override
+        protected void compute() {
+            if (m_end - m_first > 1) {
+                int middle = (m_first + m_end) >>> 1;
+                invokeAll(new Rows(m_player, m_board, m_first, middle),
+                        new Rows(m_player, m_board, middle, m_end));
+                return;
+            }
+            ScoreRow(m_player, m_board.clone(), m_first);
+        }
+    }
+
+    /**
+     * To score every move of a row, for the player and for their opponent
+     * @param a_player a final Player object. The player the map is for
+     * @param a_board a Board object. A copy only this row uses, put back as it was
+     * @param a_row an integer. The row to score
+     */
+    /*
+    Algorithm:
+        1) Cells that can't be played get NO_SCORE for both
+        2) Otherwise place as the player and score it, undo, then do the same
+            as the opponent - the same scores the greedy strategy uses
+     */
+    private void ScoreRow(final Player a_player, Board a_board, int a_row) {
+        for (int column = 0; column < Board.BOARD_SIZE; column++) {
+            final int CELL = Board.ToCell(a_row, column);
+            m_ourScores[CELL] = NO_SCORE;
+            m_theirScores[CELL] = NO_SCORE;
+            if (!a_board.IsLegal(CELL)) {
+                continue;
+            }
+
+            if (a_board.PlaceStone(m_color, CELL) == Codes.ReturnCode.SUCCESS) {
+                m_ourScores[CELL] = a_player.EvaluateScore(a_board, m_color);
+                a_board.UndoMove();
+            }
+            if (a_board.PlaceStone(m_otherColor, CELL) == Codes.ReturnCode.SUCCESS) {
+                m_theirScores[CELL] = a_player.EvaluateScore(a_board, m_otherColor);
+                a_board.UndoMove();
+            }
+        }
+    }
+
+}
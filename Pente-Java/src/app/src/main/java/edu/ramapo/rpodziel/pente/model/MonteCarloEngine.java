@@ -0,0 +1,615 @@
+//
+//  Monte Carlo engine - finds the best move with a parallel Monte Carlo tree search
+//
+
+package edu.ramapo.rpodziel.pente.model;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class MonteCarloEngine {
+    /* Class Constants */
+
+    // How much the prior of a move counts against its results, see Select
+    static final double EXPLORATION = 1.5;
+    // Visits added to a node on the way down, so other threads try other paths
+    static final int VIRTUAL_LOSS = 3;
+    // A playout that hasn't ended by then is scored by the Evaluator
+    static final int PLAYOUT_PLIES = 30;
+    // An evaluation within this of even is a draw
+    static final int DRAW_MARGIN = 100;
+
+    // Weight of a move in the playout policy and the priors, by the longest line
+    // it makes for either player, and for each pair it captures
+    private static final int[] LINE_WEIGHTS = {0, 0, 2, 8, 40, 0};
+    private static final int CAPTURE_WEIGHT = 20;
+    private static final int BASE_WEIGHT = 1;
+    // Recent moves the playout policy looks around, i.e. the last move of each player
+    private static final int RECENT_MOVES = 2;
+    // Furthest from a recent move the playout policy looks
+    private static final int LOCAL_DISTANCE = 2;
+
+    // Points of a playout for the player who moved into a node
+    private static final int LOSS_POINTS = 0;
+    private static final int DRAW_POINTS = 1;
+    private static final int WIN_POINTS = 2;
+
+    // Acts as 'struct' for the result of a search
+    public static class Result {
+        // Cell to play, Board.NO_CELL if there is no move
+        public int cell;
+        // If the threat solver proved the move wins
+        public boolean forcedWin;
+        // Playouts through the move, and the share of them the player won
+        public int visits;
+        public double winRate;
+        public long playouts;
+        public int treeNodes;
+        public long elapsedMillis;
+
+        public Result() {
+            cell = Board.NO_CELL;
+            forcedWin = false;
+            visits = 0;
+            winRate = 0;
+            playouts = 0;
+            treeNodes = 0;
+            elapsedMillis = 0;
+        }
+
+        public long GetPlayoutsPerSecond() {
+            return playouts * 1000 / Math.max(1, elapsedMillis);
+        }
+    }
+
+
+    /* Private Members */
+
+    // How long each search may take
+    private TimeControl m_timeControl;
+    // Made when first searching, so changing the size first doesn't allocate twice
+    private NodePool m_tree;
+    private int m_treeSize;
+    // Looks for forced wins before searching, the playouts are likely to miss them
+    private final ThreatSolver m_solver;
+    private final int[] m_defenses;
+
+    private int m_threads;
+    private ForkJoinPool m_pool;
+
+    // Set by Stop, which may be called from another thread. The workers of the
+    // search running, if any, so Stop can reach them
+    private volatile boolean m_stopping;
+    private volatile Worker[] m_workers;
+
+
+    /* Constructors */
+
+    public MonteCarloEngine() {
+        m_timeControl = new TimeControl();
+        m_tree = null;
+        m_treeSize = NodePool.DEFAULT_CAPACITY;
+        m_solver = new ThreatSolver();
+        m_defenses = new int[Board.NUM_CELLS];
+        m_threads = SearchEngine.DEFAULT_THREADS;
+        m_pool = null;
+        m_stopping = false;
+        m_workers = null;
+    }
+
+
+    /* Accessors */
+
+    public TimeControl GetTimeControl() {
+        return m_timeControl;
+    }
+
+    public int GetThreads() {
+        return m_threads;
+    }
+
+    public int GetTreeSize() {
+        return m_treeSize;
+    }
+
+
+    /* Mutators */
+
+    /**
+     * To set how long each search may take, e.g. one with a round clock
+     * @param a_timeControl a TimeControl object. Used from now on, not copied
+     * @return A ReturnCode representing the success of setting the time control
+     */
+    public Codes.ReturnCode SetTimeControl(TimeControl a_timeControl) {
+        if (a_timeControl == null) {
+            return Codes.ReturnCode.INVALID_SEARCH;
+        }
+        m_timeControl = a_timeControl;
+        return Codes.ReturnCode.SUCCESS;
+    }
+
+    /**
+     * To set the most nodes the tree can hold, the search keeps playing out once full
+     * @param a_treeSize an integer. The number of nodes, more than one move's worth
+     * @return A ReturnCode representing the success of setting the size
+     */
+    public Codes.ReturnCode SetTreeSize(int a_treeSize) {
+        if (a_treeSize <= Board.NUM_CELLS) {
+            return Codes.ReturnCode.INVALID_SEARCH;
+        }
+        m_treeSize = a_treeSize;
+        m_tree = null;
+        return Codes.ReturnCode.SUCCESS;
+    }
+
+    /**
+     * To set how many threads play out at once
+     * @param a_threads an integer. The number of threads, between 1 and SearchEngine.MAX_THREADS
+     * @return A ReturnCode representing the success of setting the threads
+     */
+    public Codes.ReturnCode SetThreads(int a_threads) {
+        if (a_threads < 1 || a_threads > SearchEngine.MAX_THREADS) {
+            return Codes.ReturnCode.INVALID_SEARCH;
+        }
+        if (a_threads != m_threads) {
+            Shutdown();
+            m_threads = a_threads;
+        }
+        return Codes.ReturnCode.SUCCESS;
+    }
+
+    /**
+     * To stop the search threads, they are started again by the next search
+     */
+    public void Shutdown() {
+        if (m_pool != null) {
+            m_pool.shutdown();
+            m_pool = null;
+        }
+    }
+
+
+    /* Main for Debug */
+    public static void main(String[] args) { }
+
+
+    /* Public Utility Functions */
+
+    /**
+     * To search for the best move for a player
+     * @param a_board a final Board object. The position to search, not changed
+     * @param a_color a character. The color of the player to find a move for
+     * @return The best move found, a Result object. Result.cell is Board.NO_CELL
+     *     if there is no move to make
+     */
+    /*
+    Algorithm:
+        1) Nothing is searched if already stopped, see Stop
+        2) If the threat solver finds a forced win, play it without searching. If it
+            finds one for the opponent, only search the moves that stop it
+        3) Add the root's moves to an empty tree
+        4) Every thread plays out from the tree on its own copy of the board
+            until the hard deadline or until stopped, see Worker
+        5) Play the root move with the most visits
+     */
+    public Result Search(final Board a_board, char a_color) {
+        m_timeControl.StartMove();
+        Result result = new Result();
+        Board board = a_board.clone();
+        board.SetNextColor(a_color);
+
+        // Stop sets the flag before stopping the solver, so a Stop is either seen
+        // here or reaches the solver once it has been cleared
+        m_solver.ClearStop();
+        if (m_stopping) {
+            result.elapsedMillis = m_timeControl.EndMove();
+            return result;
+        }
+
+        m_solver.SetDeadline(m_timeControl.GetHardDeadline());
+        int win = m_solver.FindWin(board, a_color);
+        if (win != Board.NO_CELL) {
+            result.cell = win;
+            result.forcedWin = true;
+            result.winRate = 1;
+            result.elapsedMillis = m_timeControl.EndMove();
+            return result;
+        }
+        final char OTHER_COLOR = (a_color == Player.WHITE_CHAR) ? Player.BLACK_CHAR : Player.WHITE_CHAR;
+        int numDefenses = 0;
+        if (m_solver.FindWin(board, OTHER_COLOR) != Board.NO_CELL) {
+            numDefenses = m_solver.FindDefenses(board, a_color, m_defenses);
+        }
+
+        NodePool tree = GetTree();
+        tree.Reset();
+        Worker[] workers = new Worker[m_threads];
+        for (int thread = 0; thread < m_threads; thread++) {
+            workers[thread] = new Worker(tree, (thread == 0) ? board : board.clone(),
+                    m_timeControl.GetHardDeadline(), thread);
+        }
+        m_workers = workers;
+        if (m_stopping) {
+            Stop();
+        }
+        if (!workers[0].ExpandRoot(m_defenses, numDefenses)) {
+            result.elapsedMillis = m_timeControl.EndMove();
+            m_workers = null;
+            return result;
+        }
+
+        for (int thread = 1; thread < m_threads; thread++) {
+            GetPool().execute(workers[thread]);
+        }
+        workers[0].compute();
+        for (int thread = 1; thread < m_threads; thread++) {
+            workers[thread].join();
+        }
+
+        int best = NodePool.NO_NODE;
+        final int FIRST = tree.GetFirstChild(NodePool.ROOT);
+        for (int child = FIRST; child < FIRST + tree.GetNumChildren(NodePool.ROOT); child++) {
+            if (best == NodePool.NO_NODE || tree.GetVisits(child) > tree.GetVisits(best)) {
+                best = child;
+            }
+        }
+        result.cell = tree.GetCell(best);
+        result.visits = tree.GetVisits(best);
+        result.winRate = tree.GetPoints(best) / (2.0 * Math.max(1, result.visits));
+        for (Worker worker : workers) {
+            result.playouts += worker.GetPlayouts();
+        }
+        result.treeNodes = tree.GetSize();
+        result.elapsedMillis = m_timeControl.EndMove();
+        m_workers = null;
+        return result;
+    }
+
+    /**
+     * To stop a search running on another thread, it plays the best move found so far.
+     *     Searches started after this stop straight away too, until ClearStop
+     */
+    public void Stop() {
+        m_stopping = true;
+        m_solver.Stop();
+        final Worker[] WORKERS = m_workers;
+        if (WORKERS != null) {
+            for (Worker worker : WORKERS) {
+                worker.Stop();
+            }
+        }
+    }
+
+    /**
+     * To let searches run again after Stop, only once the stopped search has returned
+     */
+    void ClearStop() {
+        m_stopping = false;
+    }
+
+
+    /* Private Utility Functions */
+
+    private NodePool GetTree() {
+        if (m_tree == null) {
+            m_tree = new NodePool(m_treeSize);
+        }
+        return m_tree;
+    }
+
+    private ForkJoinPool GetPool() {
+        if (m_pool == null) {
+            m_pool = new ForkJoinPool(m_threads);
+        }
+        return m_pool;
+    }
+
+    /**
+     * To weigh a move by the local pattern around it, for the playout policy and priors
+     * @param a_board a final Board object. The position, with the player to move set
+     * @param a_cell an integer. The empty cell to weigh
+     * @param a_stone a byte. The stone code of the player to move
+     * @return The weight of the move, an integer. Integer.MAX_VALUE if it wins,
+     *     Integer.MAX_VALUE - 1 if it stops the opponent winning
+     */
+    private static int WeighMove(final Board a_board, int a_cell, byte a_stone) {
+        final byte OTHER_STONE = Board.OtherStone(a_stone);
+        int ourLine = Math.min(a_board.GetLineThrough(a_cell, a_stone), Board.WIN_SCORE);
+        int pairs = a_board.GetCapturesAt(a_cell, a_stone);
+        if (ourLine == Board.WIN_SCORE
+                || a_board.GetTotalCapturedPairs(Board.ToPiece(a_stone)) + pairs >= Board.CAPTURE_WIN) {
+            return Integer.MAX_VALUE;
+        }
+        int theirLine = Math.min(a_board.GetLineThrough(a_cell, OTHER_STONE), Board.WIN_SCORE);
+        if (theirLine == Board.WIN_SCORE) {
+            return Integer.MAX_VALUE - 1;
+        }
+        return BASE_WEIGHT + LINE_WEIGHTS[ourLine] + LINE_WEIGHTS[theirLine] + CAPTURE_WEIGHT * pairs;
+    }
+
+    // Plays out from the shared tree on its own board until the deadline or stopped
+    private static final class Worker extends RecursiveAction {
+        private final NodePool m_tree;
+        private final Board m_board;
+        private final long m_deadline;
+
+        // Nodes from the root to the node being played out, and the moves to weigh
+        private final int[] m_path;
+        private final int[] m_moves;
+        private final int[] m_weights;
+        private final float[] m_priors;
+        private long m_random;
+        private long m_playouts;
+        private volatile boolean m_abort;
+
+        Worker(NodePool a_tree, Board a_board, long a_deadline, int a_thread) {
+            m_tree = a_tree;
+            m_board = a_board;
+            m_deadline = a_deadline;
+            m_path = new int[Evaluator.MAX_PLY + 1];
+            m_moves = new int[Board.NUM_CELLS];
+            m_weights = new int[Board.NUM_CELLS];
+            m_priors = new float[Board.NUM_CELLS];
+            // Any odd seed works, each thread gets its own
+            m_random = 0x9E3779B97F4A7C15L * (a_thread + 1) | 1;
+            m_playouts = 0;
+            m_abort = false;
+        }
+
+        long GetPlayouts() {
+            return m_playouts;
+        }
+
+        void Stop() {
+            m_abort = true;
+        }
+
+        /**
+         * To add the root's moves to the tree before the workers start
+         * @param a_cells a final integer array. The only moves to search, if any
+         * @param a_numCells an integer. The number of moves to search, 0 for every move
+         * @return true if there is a move to search, false otherwise
+         */
+        boolean ExpandRoot(final int[] a_cells, int a_numCells) {
+            m_tree.BeginExpand(NodePool.ROOT);
+            if (a_numCells > 0) {
+                System.arraycopy(a_cells, 0, m_moves, 0, a_numCells);
+                return ExpandMoves(NodePool.ROOT, a_numCells);
+            }
+            return Expand(NodePool.ROOT);
+        }
+
+        /*
+        Algorithm:
+            1) Walk down the tree from the root, picking each child with Select and
+                adding a virtual loss so other threads spread out
+            2) Stop at a win, or a node without children, adding them if it has been
+                visited before
+            3) Play out from there, see Playout
+            4) Give each node on the path the points of the player who moved into it
+         */
+        @Override
+        protected void compute() {
+            final byte ROOT_STONE = Board.ToStone(m_board.GetNextColor());
+            while (!m_abort && System.nanoTime() < m_deadline) {
+                int node = NodePool.ROOT;
+                int depth = 0;
+                m_path[0] = node;
+                byte winner = Board.BORDER_SQUARE;
+
+                while (m_tree.GetState(node) == NodePool.EXPANDED && m_tree.GetNumChildren(node) > 0
+                        && depth < Evaluator.MAX_PLY) {
+                    node = Select(node);
+                    m_tree.AddVirtualLoss(node, VIRTUAL_LOSS);
+                    m_path[++depth] = node;
+                    m_board.PlaceStone(m_board.GetNextColor(), m_tree.GetCell(node));
+                    if (m_board.IsWinningMove()) {
+                        winner = Board.OtherStone(Board.ToStone(m_board.GetNextColor()));
+                        break;
+                    }
+                }
+
+                if (winner == Board.BORDER_SQUARE) {
+                    if (m_tree.GetVisits(node) > VIRTUAL_LOSS && m_tree.BeginExpand(node)) {
+                        Expand(node);
+                    }
+                    winner = Playout();
+                }
+                m_playouts++;
+
+                // The root is moved into by the opponent of the player searching
+                byte mover = Board.OtherStone(ROOT_STONE);
+                for (int step = 0; step <= depth; step++) {
+                    int points = (winner == mover) ? WIN_POINTS
+                            : (winner == Board.EMPTY_SQUARE) ? DRAW_POINTS : LOSS_POINTS;
+                    m_tree.Update(m_path[step], points, (step == 0) ? 0 : VIRTUAL_LOSS);
+                    mover = Board.OtherStone(mover);
+                }
+                for (int step = 0; step < depth; step++) {
+                    m_board.UndoMove();
+                }
+            }
+        }
+
+        /**
+         * To pick the child of a node to walk down to, by PUCT: the share of
+         *     playouts won plus the prior, the less visited the more the prior counts
+         * @param a_node an integer. The expanded node
+         * @return The child picked, an integer
+         */
+        private int Select(int a_node) {
+            final double SCALE = EXPLORATION * Math.sqrt(m_tree.GetVisits(a_node) + 1);
+            final int FIRST = m_tree.GetFirstChild(a_node);
+            final int LAST = FIRST + m_tree.GetNumChildren(a_node);
+            int best = FIRST;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (int child = FIRST; child < LAST; child++) {
+                int visits = m_tree.GetVisits(child);
+                // Unvisited moves are assumed even, the prior decides between them
+                double value = (visits == 0) ? 0.5 : m_tree.GetPoints(child) / (2.0 * visits);
+                value += SCALE * m_tree.GetPrior(child) / (1 + visits);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = child;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * To add every candidate move of the board as a child of a node claimed for expanding
+         * @param a_node an integer. The node, its position is on m_board
+         * @return true if there was a move to add, false otherwise
+         */
+        private boolean Expand(int a_node) {
+            return ExpandMoves(a_node, m_board.GetCandidateCells(m_moves));
+        }
+
+        /**
+         * To add the moves in m_moves as the children of a node, with priors from WeighMove
+         * @param a_node an integer. The node, its position is on m_board
+         * @param a_numMoves an integer. The number of moves
+         * @return true if there was a move to add, false otherwise
+         */
+        private boolean ExpandMoves(int a_node, int a_numMoves) {
+            if (a_numMoves == 0) {
+                m_tree.Expand(a_node, m_moves, m_priors, 0);
+                return false;
+            }
+            final byte STONE = Board.ToStone(m_board.GetNextColor());
+            double total = 0;
+            for (int index = 0; index < a_numMoves; index++) {
+                // Wins and blocks count the same as a four, the playouts find the rest
+                m_weights[index] = Math.min(WeighMove(m_board, m_moves[index], STONE),
+                        BASE_WEIGHT + 2 * LINE_WEIGHTS[Board.WIN_SCORE - 1]);
+                total += m_weights[index];
+            }
+            for (int index = 0; index < a_numMoves; index++) {
+                m_priors[index] = (float) (m_weights[index] / total);
+            }
+            return m_tree.Expand(a_node, m_moves, m_priors, a_numMoves);
+        }
+
+        /**
+         * To play random moves from the board's position until someone wins
+         * @return The stone code of the winner, Board.EMPTY_SQUARE for a draw
+         */
+        /*
+        Algorithm:
+            1) Pick each move with the local pattern policy, see PickMove
+            2) Stop at a win, a full board or PLAYOUT_PLIES
+            3) If stopped before an end, the Evaluator decides who is ahead
+            4) Undo every move played
+         */
+        private byte Playout() {
+            byte winner = Board.BORDER_SQUARE;
+            int plies = 0;
+            while (plies < PLAYOUT_PLIES) {
+                int cell = PickMove();
+                if (cell == Board.NO_CELL) {
+                    winner = Board.EMPTY_SQUARE;
+                    break;
+                }
+                m_board.PlaceStone(m_board.GetNextColor(), cell);
+                plies++;
+                if (m_board.IsWinningMove()) {
+                    winner = Board.OtherStone(Board.ToStone(m_board.GetNextColor()));
+                    break;
+                }
+            }
+
+            if (winner == Board.BORDER_SQUARE) {
+                int score = Evaluator.Evaluate(m_board);
+                byte toMove = Board.ToStone(m_board.GetNextColor());
+                if (score > DRAW_MARGIN) { winner = toMove; }
+                else if (score < -DRAW_MARGIN) { winner = Board.OtherStone(toMove); }
+                else { winner = Board.EMPTY_SQUARE; }
+            }
+
+            for (int ply = 0; ply < plies; ply++) {
+                m_board.UndoMove();
+            }
+            return winner;
+        }
+
+        /**
+         * To pick a move for a playout, from the cells around the last move of each player
+         * @return The cell picked, Board.NO_CELL if there is no move
+         */
+        /*
+        Algorithm:
+            1) Weigh the empty cells within LOCAL_DISTANCE of the recent moves in
+                each direction, see WeighMove
+            2) Play a win straight away, else a block of the opponent's win
+            3) Otherwise pick at random, in proportion to the weights
+            4) If there are no cells near, pick any candidate cell at random
+         */
+        private int PickMove() {
+            final byte STONE = Board.ToStone(m_board.GetNextColor());
+            int numMoves = 0;
+            long total = 0;
+            int block = Board.NO_CELL;
+            for (int back = 0; back < RECENT_MOVES; back++) {
+                int recent = m_board.GetRecentCell(back);
+                if (recent == Board.NO_CELL) {
+                    continue;
+                }
+                final int ROW = recent / Board.BOARD_SIZE;
+                final int COLUMN = recent % Board.BOARD_SIZE;
+                for (int direction = 0; direction < Board.NUM_DIRECTIONS; direction++) {
+                    for (int step = 1; step <= LOCAL_DISTANCE; step++) {
+                        int row = ROW + step * Board.ROW_DELTA[direction];
+                        int column = COLUMN + step * Board.COLUMN_DELTA[direction];
+                        if (!Board.IsValidIndex(row, column)) {
+                            break;
+                        }
+                        int cell = Board.ToCell(row, column);
+                        if (!m_board.IsLegal(cell)) {
+                            continue;
+                        }
+                        int weight = WeighMove(m_board, cell, STONE);
+                        if (weight == Integer.MAX_VALUE) {
+                            return cell;
+                        }
+                        if (weight == Integer.MAX_VALUE - 1) {
+                            block = cell;
+                            continue;
+                        }
+                        m_moves[numMoves] = cell;
+                        m_weights[numMoves++] = weight;
+                        total += weight;
+                    }
+                }
+            }
+            if (block != Board.NO_CELL) {
+                return block;
+            }
+
+            if (numMoves == 0) {
+                numMoves = m_board.GetCandidateCells(m_moves);
+                return (numMoves == 0) ? Board.NO_CELL : m_moves[NextRandom(numMoves)];
+            }
+            long pick = NextRandom(total);
+            for (int index = 0; index < numMoves; index++) {
+                pick -= m_weights[index];
+                if (pick < 0) {
+                    return m_moves[index];
+                }
+            }
+            return m_moves[numMoves - 1];
+        }
+
+        /**
+         * To get a random number, with xorshift so no Random object is shared between threads
+         * @param a_bound a long. One more than the largest number wanted
+         * @return A number from 0 to a_bound - 1, an integer
+         */
+        private int NextRandom(long a_bound) {
+            m_random ^= m_random << 13;
+            m_random ^= m_random >>> 7;
+            m_random ^= m_random << 17;
+            return (int) ((m_random >>> 1) % a_bound);
+        }
+    }
+
+}
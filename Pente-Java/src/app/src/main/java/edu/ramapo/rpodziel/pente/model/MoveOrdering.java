@@ -0,0 +1,169 @@
+//
+//  Move ordering - ranks the moves of a position so alpha-beta searches the best first
+//
+
+package edu.ramapo.rpodziel.pente.model;
+
+import java.util.Arrays;
+
+final class MoveOrdering {
+    /* Class Constants */
+
+    // Rank of each kind of move, a higher rank is searched first
+    static final int HASH_RANK = 1 << 30;
+    static final int WIN_RANK = 1 << 29;
+    // Stops the opponent winning next move, e.g. blocking their four
+    static final int BLOCK_WIN_RANK = 1 << 28;
+    // Plus the number of pairs captured
+    static final int CAPTURE_RANK = 1 << 27;
+    static final int FOUR_RANK = 1 << 26;
+    static final int KILLER_RANK = 1 << 25;
+    // History scores are kept below this, so they never outrank a killer
+    static final int MAX_HISTORY = 1 << 24;
+
+    static final int NUM_KILLERS = 2;
+
+
+    /* Private Members */
+
+    // Quiet moves that caused a cutoff at each ply, most recent first
+    private final int[][] m_killers;
+    // How often each move caused a cutoff, weighted by depth, indexed by stone code then cell
+    private final int[][] m_history;
+    // Rank of each move ordered at each ply, kept so ordering allocates nothing
+    private final int[][] m_ranks;
+
+
+    /* Constructors */
+
+    MoveOrdering() {
+        m_killers = new int[Evaluator.MAX_PLY][NUM_KILLERS];
+        // Only WHITE_STONE and BLACK_STONE are used
+        m_history = new int[Board.BORDER_SQUARE][Board.NUM_CELLS];
+        m_ranks = new int[Evaluator.MAX_PLY][Board.NUM_CELLS];
+        Clear();
+    }
+
+
+    /* Mutators */
+
+    /**
+     * To forget every killer move and history score
+     */
+    void Clear() {
+        for (int[] killers : m_killers) {
+            Arrays.fill(killers, Board.NO_CELL);
+        }
+        for (int[] history : m_history) {
+            Arrays.fill(history, 0);
+        }
+    }
+
+    /**
+     * To order the moves of a position, best first
+     * @param a_board a final Board object. The position, with the player to move set
+     * @param a_moves an integer array. The moves, reordered in place
+     * @param a_numMoves an integer. The number of moves
+     * @param a_hashCell an integer. The best move stored in the table, Board.NO_CELL if none
+     * @param a_ply an integer. The plies from the root, for the killer moves
+     */
+    /*
+    Algorithm:
+        1) Rank each move: the hash move, then moves that win with five in a row
+            or enough captures, then moves that stop the opponent doing the same
+        2) Then captures, more pairs first, and moves making four in a row
+        3) Then the killer moves of the ply, then by history score
+        4) Sort by rank, keeping the board order between equal ranks
+     */
+    void Order(final Board a_board, int[] a_moves, int a_numMoves, int a_hashCell, int a_ply) {
+        final byte STONE = Board.ToStone(a_board.GetNextColor());
+        final byte OTHER_STONE = Board.OtherStone(STONE);
+        final int OUR_PAIRS = a_board.GetTotalCapturedPairs(Board.ToPiece(STONE));
+        final int THEIR_PAIRS = a_board.GetTotalCapturedPairs(Board.ToPiece(OTHER_STONE));
+        final int[] KILLERS = m_killers[a_ply];
+        final int[] HISTORY = m_history[STONE];
+        final int[] RANKS = m_ranks[a_ply];
+
+        for (int index = 0; index < a_numMoves; index++) {
+            final int CELL = a_moves[index];
+            if (CELL == a_hashCell) {
+                RANKS[index] = HASH_RANK;
+                continue;
+            }
+
+            int ourLine = a_board.GetLineThrough(CELL, STONE);
+            int ourPairs = a_board.GetCapturesAt(CELL, STONE);
+            if (ourLine >= Board.WIN_SCORE || OUR_PAIRS + ourPairs >= Board.CAPTURE_WIN) {
+                RANKS[index] = WIN_RANK;
+            }
+            else if (a_board.GetLineThrough(CELL, OTHER_STONE) >= Board.WIN_SCORE
+                    || THEIR_PAIRS + a_board.GetCapturesAt(CELL, OTHER_STONE) >= Board.CAPTURE_WIN) {
+                RANKS[index] = BLOCK_WIN_RANK;
+            }
+            else if (ourPairs > 0) {
+                RANKS[index] = CAPTURE_RANK + ourPairs;
+            }
+            else if (ourLine == Board.WIN_SCORE - 1) {
+                RANKS[index] = FOUR_RANK;
+            }
+            else if (CELL == KILLERS[0]) {
+                RANKS[index] = KILLER_RANK + 1;
+            }
+            else if (CELL == KILLERS[1]) {
+                RANKS[index] = KILLER_RANK;
+            }
+            else {
+                RANKS[index] = HISTORY[CELL];
+            }
+        }
+
+        // Insertion sort, there are few moves and most are already in order after the first few
+        for (int index = 1; index < a_numMoves; index++) {
+            int cell = a_moves[index];
+            int rank = RANKS[index];
+            int slot = index;
+            while (slot > 0 && RANKS[slot - 1] < rank) {
+                a_moves[slot] = a_moves[slot - 1];
+                RANKS[slot] = RANKS[slot - 1];
+                slot--;
+            }
+            a_moves[slot] = cell;
+            RANKS[slot] = rank;
+        }
+    }
+
+    /**
+     * To remember a move that caused a cutoff, so it is searched sooner next time
+     * @param a_color a character. The color of the player who made the move
+     * @param a_moves a final integer array. The moves of the position, as ordered
+     * @param a_index an integer. The index of the move in a_moves
+     * @param a_depth an integer. The depth left when it was searched
+     * @param a_ply an integer. The plies from the root
+     */
+    /*
+    Algorithm:
+        1) If the move is quiet, i.e. ranked below a four, make it the first killer
+            of the ply and the old first the second. The others are found anyway
+        2) Add the depth squared to its history, deeper cutoffs save more
+        3) Halve every history score if one gets too large, keeping their order
+     */
+    void Update(char a_color, final int[] a_moves, int a_index, int a_depth, int a_ply) {
+        final int CELL = a_moves[a_index];
+        final int[] KILLERS = m_killers[a_ply];
+        if (m_ranks[a_ply][a_index] < FOUR_RANK && KILLERS[0] != CELL) {
+            KILLERS[1] = KILLERS[0];
+            KILLERS[0] = CELL;
+        }
+
+        final int[] HISTORY = m_history[Board.ToStone(a_color)];
+        HISTORY[CELL] += a_depth * a_depth;
+        if (HISTORY[CELL] >= MAX_HISTORY) {
+            for (int[] history : m_history) {
+                for (int cell = 0; cell < Board.NUM_CELLS; cell++) {
+                    history[cell] /= 2;
+                }
+            }
+        }
+    }
+
+}
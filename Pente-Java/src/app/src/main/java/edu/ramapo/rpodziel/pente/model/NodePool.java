@@ -0,0 +1,181 @@
+//
+//  Node pool - the nodes of a Monte Carlo search tree, kept in flat arrays made once
+//
+
+package edu.ramapo.rpodziel.pente.model;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+final class NodePool {
+    /* Class Constants */
+
+    static final int DEFAULT_CAPACITY = 1 << 18;
+    static final int NO_NODE = -1;
+    static final int ROOT = 0;
+
+    // Expansion state of a node
+    static final int UNEXPANDED = 0;
+    // A thread is adding the children, others treat the node as a leaf until done
+    static final int EXPANDING = 1;
+    static final int EXPANDED = 2;
+    // The pool ran out, the node is only ever played out from
+    static final int LEAF = 3;
+
+
+    /* Private Members */
+
+    private final int m_capacity;
+    // Next free node, may go past the capacity once the pool runs out
+    private final AtomicInteger m_size;
+
+    // Written once by the thread expanding the parent, before it is marked EXPANDED
+    private final int[] m_cells;
+    private final float[] m_priors;
+    private final int[] m_firstChild;
+    private final int[] m_numChildren;
+
+    // Updated by every thread without locking
+    private final AtomicIntegerArray m_states;
+    private final AtomicIntegerArray m_visits;
+    // Wins of the player who moved into the node, counting a draw as one and a win as two
+    private final AtomicIntegerArray m_points;
+
+
+    /* Constructors */
+
+    /**
+     * @param a_capacity an integer. The most nodes the tree can hold
+     */
+    NodePool(int a_capacity) {
+        m_capacity = a_capacity;
+        m_size = new AtomicInteger();
+        m_cells = new int[a_capacity];
+        m_priors = new float[a_capacity];
+        m_firstChild = new int[a_capacity];
+        m_numChildren = new int[a_capacity];
+        m_states = new AtomicIntegerArray(a_capacity);
+        m_visits = new AtomicIntegerArray(a_capacity);
+        m_points = new AtomicIntegerArray(a_capacity);
+        Reset();
+    }
+
+
+    /* Accessors */
+
+    int GetCapacity() {
+        return m_capacity;
+    }
+
+    int GetSize() {
+        return Math.min(m_size.get(), m_capacity);
+    }
+
+    int GetCell(int a_node) {
+        return m_cells[a_node];
+    }
+
+    float GetPrior(int a_node) {
+        return m_priors[a_node];
+    }
+
+    int GetFirstChild(int a_node) {
+        return m_firstChild[a_node];
+    }
+
+    int GetNumChildren(int a_node) {
+        return m_numChildren[a_node];
+    }
+
+    int GetState(int a_node) {
+        return m_states.get(a_node);
+    }
+
+    int GetVisits(int a_node) {
+        return m_visits.get(a_node);
+    }
+
+    int GetPoints(int a_node) {
+        return m_points.get(a_node);
+    }
+
+
+    /* Mutators */
+
+    /**
+     * To empty the tree, leaving only the root
+     */
+    void Reset() {
+        m_size.set(ROOT + 1);
+        InitNode(ROOT, Board.NO_CELL, 1);
+    }
+
+    /**
+     * To claim a node for expanding, only one thread gets it
+     * @param a_node an integer. The node to expand
+     * @return true if the calling thread must add the children, false otherwise
+     */
+    boolean BeginExpand(int a_node) {
+        return m_states.compareAndSet(a_node, UNEXPANDED, EXPANDING);
+    }
+
+    /**
+     * To add the children of a node claimed with BeginExpand
+     * @param a_node an integer. The node to expand
+     * @param a_cells a final integer array. The move into each child
+     * @param a_priors a final float array. How likely each move is to be best, summing to 1
+     * @param a_numChildren an integer. The number of children
+     * @return true if added, false if the pool is out of nodes and the node stays a leaf
+     */
+    boolean Expand(int a_node, final int[] a_cells, final float[] a_priors, int a_numChildren) {
+        int first = m_size.getAndAdd(a_numChildren);
+        if (first + a_numChildren > m_capacity) {
+            m_states.set(a_node, LEAF);
+            return false;
+        }
+
+        for (int child = 0; child < a_numChildren; child++) {
+            InitNode(first + child, a_cells[child], a_priors[child]);
+        }
+        m_firstChild[a_node] = first;
+        m_numChildren[a_node] = a_numChildren;
+        // Publishes the children to the other threads
+        m_states.set(a_node, EXPANDED);
+        return true;
+    }
+
+    /**
+     * To count a visit to a node before its playout is done, so other threads
+     *     spread out instead of all following the same path
+     * @param a_node an integer. The node visited
+     * @param a_virtualLoss an integer. The visits to add, taken off again by Update
+     */
+    void AddVirtualLoss(int a_node, int a_virtualLoss) {
+        m_visits.addAndGet(a_node, a_virtualLoss);
+    }
+
+    /**
+     * To record the result of a playout through a node
+     * @param a_node an integer. The node
+     * @param a_points an integer. 2 for a win of the player who moved into it, 1 a draw, 0 a loss
+     * @param a_virtualLoss an integer. The virtual loss added on the way down
+     */
+    void Update(int a_node, int a_points, int a_virtualLoss) {
+        m_visits.addAndGet(a_node, 1 - a_virtualLoss);
+        m_points.addAndGet(a_node, a_points);
+    }
+
+
+    /* Private Utility Functions */
+
+    private void InitNode(int a_node, int a_cell, float a_prior) {
+        m_cells[a_node] = a_cell;
+        m_priors[a_node] = a_prior;
+        m_firstChild[a_node] = NO_NODE;
+        m_numChildren[a_node] = 0;
+        m_visits.set(a_node, 0);
+        m_points.set(a_node, 0);
+        m_states.set(a_node, UNEXPANDED);
+    }
+
+}
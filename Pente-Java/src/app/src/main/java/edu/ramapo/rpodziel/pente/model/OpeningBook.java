@@ -0,0 +1,223 @@
+//
+//  Opening book - the best move of early positions, read from a memory mapped file
+//
+
+package edu.ramapo.rpodziel.pente.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+public class OpeningBook {
+    /* Class Constants */
+
+    public static final String FILE_NAME = "openings.book";
+
+    // The board can be rotated and reflected 8 ways. Bit 0 swaps rows and columns,
+    // bit 1 flips the rows and bit 2 flips the columns, in that order
+    public static final int NUM_SYMMETRIES = 8;
+    private static final int TRANSPOSE = 1;
+    private static final int FLIP_ROWS = 2;
+    private static final int FLIP_COLUMNS = 4;
+
+    // The cell each cell moves to, indexed by the symmetry then the cell
+    static final int[][] SYMMETRY_CELLS = new int[NUM_SYMMETRIES][Board.NUM_CELLS];
+    // The symmetry that undoes each symmetry
+    static final int[] INVERSE = new int[NUM_SYMMETRIES];
+
+    static {
+        final int LAST = Board.BOARD_SIZE - 1;
+        for (int symmetry = 0; symmetry < NUM_SYMMETRIES; symmetry++) {
+            for (int cell = 0; cell < Board.NUM_CELLS; cell++) {
+                int row = cell / Board.BOARD_SIZE; int column = cell % Board.BOARD_SIZE;
+                if ((symmetry & TRANSPOSE) != 0) { int swap = row; row = column; column = swap; }
+                if ((symmetry & FLIP_ROWS) != 0) { row = LAST - row; }
+                if ((symmetry & FLIP_COLUMNS) != 0) { column = LAST - column; }
+                SYMMETRY_CELLS[symmetry][cell] = Board.ToCell(row, column);
+            }
+        }
+        for (int symmetry = 0; symmetry < NUM_SYMMETRIES; symmetry++) {
+            for (int inverse = 0; inverse < NUM_SYMMETRIES; inverse++) {
+                boolean undoes = true;
+                for (int cell = 0; cell < Board.NUM_CELLS && undoes; cell++) {
+                    undoes = SYMMETRY_CELLS[inverse][SYMMETRY_CELLS[symmetry][cell]] == cell;
+                }
+                if (undoes) {
+                    INVERSE[symmetry] = inverse;
+                }
+            }
+        }
+    }
+
+    // The file is a header, then one record per position sorted by key, lowest first.
+    // Header: MAGIC, VERSION, the most stones of a position in the book, then the record count.
+    // Record: the canonical key, the move in the canonical position, the depth it was searched to
+    static final int MAGIC = 0x50424F4B;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 4 * Integer.BYTES;
+    static final int RECORD_SIZE = Long.BYTES + 2 * Short.BYTES;
+    private static final int CELL_OFFSET = Long.BYTES;
+    static final int DEPTH_OFFSET = CELL_OFFSET + Short.BYTES;
+
+    // Loaded once and used by every player, see GetDefault
+    private static final OpeningBook m_default = new OpeningBook();
+
+
+    /* Private Members */
+
+    // The mapped file, null if no book is loaded. Set last when loading, so a
+    // player on another thread sees the record count and stones that go with it
+    private volatile ByteBuffer m_records;
+    private int m_numRecords;
+    private int m_maxStones;
+
+
+    /* Constructors */
+
+    public OpeningBook() {
+        m_records = null;
+        m_numRecords = 0;
+        m_maxStones = 0;
+    }
+
+
+    /* Accessors */
+
+    /**
+     * To get the book the players look their moves up in
+     * @return The shared book, an OpeningBook object. Empty until loaded
+     */
+    public static OpeningBook GetDefault() {
+        return m_default;
+    }
+
+    public boolean IsLoaded() {
+        return m_records != null;
+    }
+
+    public int GetNumPositions() {
+        return m_numRecords;
+    }
+
+
+    /* Mutators */
+
+    /**
+     * To load a book, memory mapping the file so only the records looked at are read
+     * @param a_file a File object. The book, written by OpeningBookBuilder
+     * @return A ReturnCode representing the success of loading the book. The book
+     *     already loaded, if any, is kept if the file can't be loaded
+     */
+    public synchronized Codes.ReturnCode Load(final File a_file) {
+        try (RandomAccessFile file = new RandomAccessFile(a_file, "r");
+             FileChannel channel = file.getChannel()) {
+            // The mapping stays valid once the channel is closed
+            ByteBuffer records = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (records.limit() < HEADER_SIZE || records.getInt(0) != MAGIC
+                    || records.getInt(Integer.BYTES) != VERSION) {
+                return Codes.ReturnCode.LOAD_ERROR;
+            }
+            int numRecords = records.getInt(3 * Integer.BYTES);
+            if (numRecords < 0 || records.limit() != HEADER_SIZE + (long) numRecords * RECORD_SIZE) {
+                return Codes.ReturnCode.LOAD_ERROR;
+            }
+
+            m_maxStones = records.getInt(2 * Integer.BYTES);
+            m_numRecords = numRecords;
+            m_records = records;
+        }
+        catch (IOException e) {
+            return Codes.ReturnCode.LOAD_ERROR;
+        }
+        return Codes.ReturnCode.SUCCESS;
+    }
+
+
+    /* Main for Debug */
+    public static void main(String[] args) { }
+
+
+    /* Public Utility Functions */
+
+    /**
+     * To look up the book move of a position
+     * @param a_board a final Board object. The position, not changed
+     * @param a_color a character. The color of the player to find a move for
+     * @return The cell to play, Board.NO_CELL if the position isn't in the book
+     */
+    /*
+    Algorithm:
+        1) Nothing to look up past the opening, or without a book
+        2) Find the key of the position turned to its canonical symmetry, see CanonicalKey
+        3) Binary search the sorted records for the key
+        4) Turn the stored move back from the canonical symmetry, and only play it if
+            it is legal - two positions sharing a key is unlikely, not impossible
+     */
+    public int Probe(final Board a_board, char a_color) {
+        final ByteBuffer RECORDS = m_records;
+        if (RECORDS == null || Board.NUM_CELLS - a_board.GetIntersectLeft() > m_maxStones) {
+            return Board.NO_CELL;
+        }
+
+        // The key has the player to move, which may not be set on the board yet
+        long keyChange = (a_board.GetNextColor() != a_color) ? Zobrist.BLACK_TO_MOVE_KEY : 0;
+        int[] symmetry = new int[1];
+        long key = CanonicalKey(a_board, symmetry, keyChange);
+
+        int low = 0; int high = m_numRecords - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int offset = HEADER_SIZE + middle * RECORD_SIZE;
+            int compare = Long.compare(RECORDS.getLong(offset), key);
+            if (compare < 0) { low = middle + 1; }
+            else if (compare > 0) { high = middle - 1; }
+            else {
+                int canonicalCell = RECORDS.getShort(offset + CELL_OFFSET);
+                if (canonicalCell < 0 || canonicalCell >= Board.NUM_CELLS) {
+                    return Board.NO_CELL;
+                }
+                int cell = SYMMETRY_CELLS[INVERSE[symmetry[0]]][canonicalCell];
+                return a_board.IsLegal(cell) ? cell : Board.NO_CELL;
+            }
+        }
+        return Board.NO_CELL;
+    }
+
+    /**
+     * To get the key of a position that is the same for all 8 of its symmetries,
+     *     i.e. the lowest of their Zobrist keys
+     * @param a_board a final Board object. The position
+     * @param a_symmetry an integer array of at least 1. Filled with the symmetry that
+     *     turns the position into the canonical one
+     * @return The canonical key, a long
+     */
+    static long CanonicalKey(final Board a_board, int[] a_symmetry) {
+        return CanonicalKey(a_board, a_symmetry, 0);
+    }
+
+
+    /* Private Utility Functions */
+
+    /**
+     * To get the canonical key of a position, see CanonicalKey
+     * @param a_board a final Board object. The position
+     * @param a_symmetry an integer array of at least 1. Filled with the canonical symmetry
+     * @param a_keyChange a long. Folded into every symmetry's key, e.g. to change the player to move
+     * @return The canonical key, a long
+     */
+    private static long CanonicalKey(final Board a_board, int[] a_symmetry, long a_keyChange) {
+        long lowest = Long.MAX_VALUE;
+        a_symmetry[0] = 0;
+        for (int symmetry = 0; symmetry < NUM_SYMMETRIES; symmetry++) {
+            long key = a_board.GetTransformedKey(SYMMETRY_CELLS[symmetry]) ^ a_keyChange;
+            if (key < lowest) {
+                lowest = key;
+                a_symmetry[0] = symmetry;
+            }
+        }
+        return lowest;
+    }
+
+}
@@ -0,0 +1,222 @@
+//
+//  Pattern table - the score of every line of intersections around a stone, made once
+//
+
+package edu.ramapo.rpodziel.pente.model;
+
+public final class PatternTable {
+    /* Class Constants */
+
+    // A window reaches this far out from the stone in both directions of a cardinal plane,
+    // the board's border is exactly this wide so a window never leaves the squares
+    static final int RADIUS = Board.PADDING;
+    static final int WINDOW = 2 * RADIUS + 1;
+
+    // Each intersection of a window is one of these, seen by the player whose stone is
+    // in the middle. The border blocks a line just like the opponent's stone does, but
+    // is kept apart as no stone can be placed there to capture against it
+    static final int EMPTY = 0;
+    static final int OWN = 1;
+    static final int OTHER = 2;
+    static final int BORDER = 3;
+    static final int NUM_CODES = 4;
+    static final int NUM_WINDOWS = (int) Math.pow(NUM_CODES, WINDOW);
+
+    // Code of each square, indexed by the stone code of the player then the square's stone code
+    static final int[][] CODES = new int[Board.BLACK_STONE + 1][Board.BORDER_SQUARE + 1];
+    static {
+        for (byte stone = Board.WHITE_STONE; stone <= Board.BLACK_STONE; stone++) {
+            CODES[stone][Board.EMPTY_SQUARE] = EMPTY;
+            CODES[stone][stone] = OWN;
+            CODES[stone][Board.OtherStone(stone)] = OTHER;
+            CODES[stone][Board.BORDER_SQUARE] = BORDER;
+        }
+    }
+
+    // Score of the best line through the stone, a closed line has one end blocked
+    static final int TWO = 5;
+    static final int OPEN_TWO = 20;
+    static final int THREE = 40;
+    static final int OPEN_THREE = 150;
+    static final int FOUR = 200;
+    static final int OPEN_FOUR = 600;
+    static final int FIVE = Player.WIN_MULTI;
+    // Score of each pair of the opponent's the stone could capture next move
+    static final int CAPTURE_THREAT = 150;
+
+    // Score of every window, indexed by the packed window, see Index
+    static final int[] SCORES = new int[NUM_WINDOWS];
+    // Pairs of the player's own stones, through the middle, the opponent could capture next
+    // move, indexed by the packed window. Kept apart as only the player moving avoids them
+    static final byte[] CAPTURE_RISKS = new byte[NUM_WINDOWS];
+
+    static {
+        int[] codes = new int[WINDOW];
+        for (int window = 0; window < NUM_WINDOWS; window++) {
+            Unpack(window, codes);
+            // Most windows are never packed, only score those a board can have
+            if (!IsOnBoard(codes)) {
+                continue;
+            }
+            SCORES[window] = ScoreLine(codes) + CAPTURE_THREAT * CountThreats(codes);
+            CAPTURE_RISKS[window] = (byte) CountRisks(codes);
+        }
+    }
+
+    private PatternTable() {}
+
+
+    /* Public Utility Functions */
+
+    /**
+     * To add an intersection to a packed window, furthest backward intersection first
+     * @param a_window an integer. The window packed so far
+     * @param a_code an integer. The code of the next intersection, e.g. OWN
+     * @return The packed window, an integer
+     */
+    static int Index(int a_window, int a_code) {
+        return a_window * NUM_CODES + a_code;
+    }
+
+
+    /* Main for Debug */
+    public static void main(String[] args) { }
+
+
+    /* Private Utility Functions */
+
+    /**
+     * To unpack a window into the code of each intersection
+     * @param a_window an integer. The packed window, see Index
+     * @param a_codes an integer array of WINDOW. Filled with the codes, the stone is in the middle
+     */
+    private static void Unpack(int a_window, int[] a_codes) {
+        for (int step = WINDOW - 1; step >= 0; step--) {
+            a_codes[step] = a_window % NUM_CODES;
+            a_window /= NUM_CODES;
+        }
+    }
+
+    /**
+     * To see if a window can be packed from a board, see Board.GetPatternWindow
+     * @param a_codes a final integer array. The unpacked window
+     * @return true if our stone is in the middle and the border only runs in from
+     *     one end, false otherwise
+     */
+    private static boolean IsOnBoard(final int[] a_codes) {
+        if (a_codes[RADIUS] != OWN) {
+            return false;
+        }
+        // The board is wider than a window, so the border can't be at both ends
+        if (a_codes[0] == BORDER && a_codes[WINDOW - 1] == BORDER) {
+            return false;
+        }
+        for (int step = 1; step < RADIUS; step++) {
+            if (a_codes[step] == BORDER && a_codes[step - 1] != BORDER) {
+                return false;
+            }
+            if (a_codes[WINDOW - 1 - step] == BORDER && a_codes[WINDOW - step] != BORDER) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * To score the best line through the stone in the middle of a window
+     * @param a_codes a final integer array. The unpacked window
+     * @return The score of the line, an integer. 0 if it can never make WIN_SCORE
+     */
+    /*
+    Algorithm:
+        1) If the stones in a row through the middle reach WIN_SCORE, it is a five
+        2) Otherwise find the most of our stones in any WIN_SCORE long stretch
+            through the middle with none of the opponent's, i.e. what could still become five
+        3) The line is open if those stones also fit inside a stretch one longer,
+            with both of its ends empty, e.g. OWWWOO
+     */
+    private static int ScoreLine(final int[] a_codes) {
+        final int LENGTH = Board.WIN_SCORE;
+
+        int run = 1;
+        for (int step = RADIUS + 1; step < WINDOW && a_codes[step] == OWN; step++) { run++; }
+        for (int step = RADIUS - 1; step >= 0 && a_codes[step] == OWN; step--) { run++; }
+        if (run >= LENGTH) {
+            return FIVE;
+        }
+
+        int most = 0;
+        for (int start = RADIUS - LENGTH + 1; start <= RADIUS; start++) {
+            most = Math.max(most, CountClean(a_codes, start, LENGTH));
+        }
+
+        boolean open = false;
+        for (int start = RADIUS - LENGTH + 1; start < RADIUS && !open; start++) {
+            open = a_codes[start] == EMPTY && a_codes[start + LENGTH] == EMPTY
+                    && CountClean(a_codes, start + 1, LENGTH - 1) == most;
+        }
+
+        switch (most) {
+            case 4: return open ? OPEN_FOUR : FOUR;
+            case 3: return open ? OPEN_THREE : THREE;
+            case 2: return open ? OPEN_TWO : TWO;
+            default: return 0;
+        }
+    }
+
+    /**
+     * To count our stones in a stretch of a window with none of the opponent's
+     * @param a_codes a final integer array. The unpacked window
+     * @param a_start an integer. The first intersection of the stretch
+     * @param a_length an integer. The number of intersections in the stretch
+     * @return The number of our stones, 0 if the opponent has any in the stretch
+     *     or it reaches the border
+     */
+    private static int CountClean(final int[] a_codes, int a_start, int a_length) {
+        int stones = 0;
+        for (int step = a_start; step < a_start + a_length; step++) {
+            if (a_codes[step] == OTHER || a_codes[step] == BORDER) { return 0; }
+            if (a_codes[step] == OWN) { stones++; }
+        }
+        return stones;
+    }
+
+    /**
+     * To count the pairs of the opponent's stones next to the middle that could be
+     *     captured next move, e.g. WBBO for white
+     * @param a_codes a final integer array. The unpacked window
+     * @return The number of pairs, 0 to 2
+     */
+    private static int CountThreats(final int[] a_codes) {
+        int threats = 0;
+        for (int sign = -1; sign <= 1; sign += 2) {
+            if (a_codes[RADIUS + sign] == OTHER && a_codes[RADIUS + 2 * sign] == OTHER
+                    && a_codes[RADIUS + 3 * sign] == EMPTY) {
+                threats++;
+            }
+        }
+        return threats;
+    }
+
+    /**
+     * To count the pairs of our stones through the middle that could be captured
+     *     next move, e.g. OWWB for white. A pair against the edge of the board is
+     *     safe, the capturing stone can't be placed off it
+     * @param a_codes a final integer array. The unpacked window
+     * @return The number of pairs, 0 to 2
+     */
+    private static int CountRisks(final int[] a_codes) {
+        int risks = 0;
+        for (int sign = -1; sign <= 1; sign += 2) {
+            if (a_codes[RADIUS + sign] != OWN) {
+                continue;
+            }
+            int before = a_codes[RADIUS - sign]; int after = a_codes[RADIUS + 2 * sign];
+            if ((before == EMPTY && after == OTHER) || (before == OTHER && after == EMPTY)) {
+                risks++;
+            }
+        }
+        return risks;
+    }
+
+}
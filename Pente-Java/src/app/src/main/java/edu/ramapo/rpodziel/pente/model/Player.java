@@ -3,6 +3,7 @@ package edu.ramapo.rpodziel.pente.model;
 import androidx.annotation.NonNull;
 
 import java.io.Serializable;
+import java.util.PrimitiveIterator;
 import java.util.Vector;
 
 public class Player implements Serializable, Cloneable {
@@ -21,18 +22,35 @@ public class Player implements Serializable, Cloneable {
 
     protected static final int DEFAULT_EVAL = Integer.MIN_VALUE;
 
+    // Adjustable constants to put more emphasis on certain moves
+    // We care the most about winning, then capturing, then building
+    // How much building is worth is up to the PatternTable
+    protected static final int WIN_MULTI = 10000;
+    protected static final int CAPTURE_MULTI = 2000;
+
     // Used for passing around in intents and for subclasses
     // Assistance received:
     //  https://stackoverflow.com/questions/285793/what-is-a-serialversionuid-and-why-should-i-use-it
     private static final long serialVersionUID = 42L;
 
+    // How the player picks its best move, see BestMove
+    // GREEDY scores every move one ply deep, SEARCH looks ahead with the SearchEngine,
+    // MCTS plays out random games with the MonteCarloEngine
+    public enum Strategy {
+        GREEDY,
+        SEARCH,
+        MCTS
+    }
+    public static final Strategy DEFAULT_STRATEGY = Strategy.SEARCH;
+
     // Used to get rational for the move
     protected enum MoveReason {
         UNKNOWN,
         WIN,
         CAPTURE,
         BUILD,
-        BOARD_RESTRICTION
+        BOARD_RESTRICTION,
+        OPENING
     }
 
     // Acts as 'struct' for the computer strategy
@@ -87,6 +105,20 @@ public class Player implements Serializable, Cloneable {
 
     // Used for the computer strategy - stores the best move to make
     protected ComputerMove m_bestMove;
+    protected Strategy m_strategy;
+    // Threads the search engine uses, kept here as the engine isn't saved
+    protected int m_searchThreads;
+    // How long the search engine may take, saved so the round clock carries on
+    protected TimeControl m_timeControl;
+    // Made when first needed, not saved with the player
+    protected transient SearchEngine m_engine;
+    protected transient MonteCarloEngine m_monteCarlo;
+    // Searches with the engine on the opponent's time, see StartPondering
+    protected transient Ponderer m_ponderer;
+    // Told of the search's progress, see SetProgressListener
+    protected transient SearchEngine.ProgressListener m_listener;
+    // Set from another thread to stop the move being found, see CancelMove
+    protected transient volatile boolean m_cancelled;
 
 
     /* Constructors */
@@ -102,6 +134,14 @@ public class Player implements Serializable, Cloneable {
         m_capturedPairs = DEFAULT_SCORE;
 
         m_bestMove = new ComputerMove();
+        m_strategy = DEFAULT_STRATEGY;
+        m_searchThreads = SearchEngine.DEFAULT_THREADS;
+        m_timeControl = new TimeControl();
+        m_engine = null;
+        m_monteCarlo = null;
+        m_ponderer = null;
+        m_listener = null;
+        m_cancelled = false;
     }
 
     public Player() {
@@ -159,6 +199,54 @@ public class Player implements Serializable, Cloneable {
         return m_tournamentScore;
     }
 
+    public Strategy GetStrategy() {
+        return m_strategy;
+    }
+
+    /**
+     * To get the search engine the player uses for the SEARCH strategy,
+     *     e.g. to change how long it may search
+     * @return The search engine of the player, a SearchEngine object
+     */
+    public SearchEngine GetEngine() {
+        if (m_engine == null) {
+            m_engine = new SearchEngine();
+            m_engine.SetThreads(m_searchThreads);
+            m_engine.SetTimeControl(GetTimeControl());
+            m_engine.SetProgressListener(m_listener);
+        }
+        return m_engine;
+    }
+
+    /**
+     * To get the Monte Carlo engine the player uses for the MCTS strategy
+     * @return The Monte Carlo engine of the player, a MonteCarloEngine object
+     */
+    public MonteCarloEngine GetMonteCarloEngine() {
+        if (m_monteCarlo == null) {
+            m_monteCarlo = new MonteCarloEngine();
+            m_monteCarlo.SetThreads(m_searchThreads);
+            m_monteCarlo.SetTimeControl(GetTimeControl());
+        }
+        return m_monteCarlo;
+    }
+
+    public int GetSearchThreads() {
+        return m_searchThreads;
+    }
+
+    /**
+     * To get how long the player's searches may take, e.g. to set the round clock
+     * @return The time control of the player, a TimeControl object
+     */
+    public TimeControl GetTimeControl() {
+        // Saved before there was a time control
+        if (m_timeControl == null) {
+            m_timeControl = new TimeControl();
+        }
+        return m_timeControl;
+    }
+
 
     /* Mutators */
 
@@ -227,6 +315,131 @@ public class Player implements Serializable, Cloneable {
         return Codes.ReturnCode.SUCCESS;
     }
 
+    /**
+     * To set how the player picks its best move
+     * @param a_strategy a Strategy, the strategy to use
+     * @return A ReturnCode representing the success of setting the strategy
+     */
+    public Codes.ReturnCode SetStrategy(Strategy a_strategy) {
+        if (a_strategy == null) {
+            return Codes.ReturnCode.INVALID_SEARCH;
+        }
+        m_strategy = a_strategy;
+        return Codes.ReturnCode.SUCCESS;
+    }
+
+    /**
+     * To set how many threads the player searches with
+     * @param a_threads an integer, between 1 and SearchEngine.MAX_THREADS
+     * @return A ReturnCode representing the success of setting the threads
+     */
+    public Codes.ReturnCode SetSearchThreads(int a_threads) {
+        if (a_threads < 1 || a_threads > SearchEngine.MAX_THREADS) {
+            return Codes.ReturnCode.INVALID_SEARCH;
+        }
+        m_searchThreads = a_threads;
+        if (m_engine != null) {
+            m_engine.SetThreads(a_threads);
+        }
+        if (m_monteCarlo != null) {
+            m_monteCarlo.SetThreads(a_threads);
+        }
+        return Codes.ReturnCode.SUCCESS;
+    }
+
+    /**
+     * To start searching on the opponent's time, for the position after the reply
+     *     the player expects. Only the SEARCH strategy ponders
+     * @param a_board a final Board object. The position the opponent moves in, not changed
+     * @param a_otherColor a character. The color of the opponent, to move next
+     * @param a_plyCount an integer. The plies played so far in the round
+     * @return A ReturnCode representing the success of starting to ponder
+     */
+    public Codes.ReturnCode StartPondering(final Board a_board, char a_otherColor, int a_plyCount) {
+        if (m_strategy != Strategy.SEARCH) {
+            return Codes.ReturnCode.INVALID_SEARCH;
+        }
+        if (m_ponderer == null) {
+            m_ponderer = new Ponderer(GetEngine());
+        }
+        return m_ponderer.Start(a_board, a_otherColor, m_color, a_plyCount);
+    }
+
+    /**
+     * To stop pondering, e.g. when the game is paused. Nothing happens if not pondering
+     * @return A ReturnCode representing the success of stopping
+     */
+    public Codes.ReturnCode StopPondering() {
+        if (m_ponderer != null) {
+            m_ponderer.Stop();
+        }
+        return Codes.ReturnCode.SUCCESS;
+    }
+
+    /**
+     * To stop pondering and let the threads of the player's engines end, e.g. when
+     *     the game is left. They are started again if the player searches again
+     * @return A ReturnCode representing the success of shutting down
+     */
+    public Codes.ReturnCode Shutdown() {
+        if (m_ponderer != null) {
+            m_ponderer.Shutdown();
+        }
+        if (m_engine != null) {
+            m_engine.Shutdown();
+        }
+        if (m_monteCarlo != null) {
+            m_monteCarlo.Shutdown();
+        }
+        return Codes.ReturnCode.SUCCESS;
+    }
+
+    /**
+     * To set what is told of the search's progress while the player finds a move
+     * @param a_listener a SearchEngine.ProgressListener. null to stop telling anything
+     * @return A ReturnCode representing the success of setting the listener
+     */
+    public Codes.ReturnCode SetProgressListener(SearchEngine.ProgressListener a_listener) {
+        m_listener = a_listener;
+        if (m_engine != null) {
+            m_engine.SetProgressListener(a_listener);
+        }
+        return Codes.ReturnCode.SUCCESS;
+    }
+
+    /**
+     * To stop finding a move from another thread. The move isn't made, MakeMove
+     *     returns CANCELLED and GetHelp null, until AllowMove is called
+     * @return A ReturnCode representing the success of cancelling
+     */
+    public Codes.ReturnCode CancelMove() {
+        m_cancelled = true;
+        if (m_engine != null) {
+            m_engine.Stop();
+        }
+        if (m_monteCarlo != null) {
+            m_monteCarlo.Stop();
+        }
+        return Codes.ReturnCode.SUCCESS;
+    }
+
+    /**
+     * To let the player find moves again after CancelMove
+     * @return A ReturnCode representing the success of allowing moves
+     */
+    public Codes.ReturnCode AllowMove() {
+        m_cancelled = false;
+        // Searches don't clear the engines' stop themselves, a cancel before one
+        // starts would be lost
+        if (m_engine != null) {
+            m_engine.ClearStop();
+        }
+        if (m_monteCarlo != null) {
+            m_monteCarlo.ClearStop();
+        }
+        return Codes.ReturnCode.SUCCESS;
+    }
+
     /**
      * To increment the tournament score of the player
      * @param a_score an integer, the number of points to increment by
@@ -264,6 +477,13 @@ public class Player implements Serializable, Cloneable {
         }
         // Need to deep copy the best move object
         copy.m_bestMove = this.m_bestMove.clone();
+        // The copy times its own moves, and makes its own engines if it searches,
+        // so nothing done with it reaches the player's clock or threads
+        copy.m_timeControl = this.GetTimeControl().clone();
+        copy.m_engine = null;
+        copy.m_monteCarlo = null;
+        copy.m_ponderer = null;
+        copy.m_listener = null;
         return copy;
     }
 
@@ -302,8 +522,150 @@ public class Player implements Serializable, Cloneable {
      */
     /*
     Algorithm:
-        1) For every position on the board, play as ourselves, and play as the
-            next player
+        1) If the position is in the opening book, play its move without searching
+        2) If searching, or using MCTS, and there is no bounds restriction, search
+            for the best move, see SearchMove
+        3) Otherwise, or if the search found nothing, take the best greedy move.
+            Any pondering is stopped first, its thread would slow the move down
+        4) Nothing more is done once cancelled, the move won't be made
+     */
+    protected void BestMove(final Board a_board, final Player a_nextPlayer) {
+        int bookCell = OpeningBook.GetDefault().Probe(a_board, m_color);
+        if (bookCell != Board.NO_CELL) {
+            StopPondering();
+            m_bestMove = NewComputerMove(Board.CellToPosition(bookCell), m_color, 0);
+            m_bestMove.reason = MoveReason.OPENING;
+            return;
+        }
+
+        // Bounds restrictions only happen in the opening, where the greedy
+        // strategy already knows where to place
+        boolean restricted = a_board.GetInnerBounds() > 0
+                || a_board.GetOuterBounds() < Board.BOARD_SIZE;
+        if (m_strategy != Strategy.GREEDY && !restricted && SearchMove(a_board, a_nextPlayer)) {
+            return;
+        }
+        StopPondering();
+        if (m_cancelled) {
+            return;
+        }
+        GreedyMove(a_board, a_nextPlayer);
+    }
+
+    /**
+     * To find the best move with the search engine, or the Monte Carlo engine for MCTS
+     * @param a_board a final Board object, the current state of the board
+     * @param a_nextPlayer a final Player object, the next player to move
+     * @return true if a move was found and set as the best move, false otherwise
+     */
+    /*
+    Algorithm:
+        1) Search the board for the best move for us, with the engine of our strategy.
+            If pondering guessed the opponent's reply, its search carries on until the
+            soft deadline instead of starting over, see TakePondered. If not, the
+            search only gets what is left of the move once the ponder has stopped
+        2) Score the move one ply deep for us and for the next player, so we
+            can tell if the move builds for us or stops them
+        3) Set the best move with the reason from whichever scored higher, or a
+            win if the search found a forced one
+     */
+    protected boolean SearchMove(final Board a_board, final Player a_nextPlayer) {
+        if (m_cancelled) {
+            return false;
+        }
+        int cell;
+        boolean forcedWin;
+        if (m_strategy == Strategy.MCTS) {
+            StopPondering();
+            MonteCarloEngine.Result result = GetMonteCarloEngine().Search(a_board, m_color);
+            cell = result.cell;
+            forcedWin = result.forcedWin;
+        }
+        else {
+            TimeControl timeControl = GetTimeControl();
+            timeControl.StartMove();
+            SearchEngine.Result result = TakePondered(a_board);
+            // Taking the ponder lets the engine search again, so a cancel that
+            // came meanwhile is only seen here
+            if (result == null && !m_cancelled) {
+                result = GetEngine().SearchRest(a_board, m_color);
+            }
+            long elapsed = timeControl.EndMove();
+            if (result == null) {
+                return false;
+            }
+            result.elapsedMillis = elapsed;
+            cell = result.cell;
+            forcedWin = result.score >= Evaluator.WIN_VALUE - Evaluator.MAX_PLY;
+        }
+        if (cell == Board.NO_CELL) {
+            return false;
+        }
+
+        // The search only knows the move is best, the greedy scores tell us why
+        Board boardCopy = a_board.clone();
+        final String POSITION = Board.CellToPosition(cell);
+
+        int ourScore = DEFAULT_EVAL;
+        if (boardCopy.PlaceStone(m_color, cell) == Codes.ReturnCode.SUCCESS) {
+            ourScore = EvaluateScore(boardCopy, m_color);
+            boardCopy.UndoMove();
+        }
+        int theirScore = DEFAULT_EVAL;
+        if (boardCopy.PlaceStone(a_nextPlayer.GetColor(), cell) == Codes.ReturnCode.SUCCESS) {
+            theirScore = EvaluateScore(boardCopy, a_nextPlayer.GetColor());
+            boardCopy.UndoMove();
+        }
+
+        if (ourScore >= theirScore) {
+            m_bestMove = NewComputerMove(POSITION, m_color, ourScore);
+        }
+        else {
+            m_bestMove = NewComputerMove(POSITION, a_nextPlayer.GetColor(), theirScore);
+        }
+        // A forced win found by the search, even if not right away
+        if (forcedWin) {
+            m_bestMove.color = m_color;
+            m_bestMove.reason = MoveReason.WIN;
+        }
+        // Nothing right away, the move sets up for later
+        else if (m_bestMove.reason == MoveReason.UNKNOWN) {
+            m_bestMove.color = m_color;
+            m_bestMove.reason = MoveReason.BUILD;
+        }
+        return true;
+    }
+
+    /**
+     * To take the move pondering found, if it guessed the opponent's reply. The
+     *     pondering is stopped either way
+     * @param a_board a final Board object, the current state of the board
+     * @return The move pondered, a SearchEngine.Result object. null if there isn't one,
+     *     the search has to be run
+     */
+    /*
+    Algorithm:
+        1) Nothing to take if the player never pondered
+        2) The move is already being timed, the pondering may go on until its
+            soft deadline - on a hit it has often reached the max depth already
+     */
+    protected SearchEngine.Result TakePondered(final Board a_board) {
+        if (m_ponderer == null) {
+            return null;
+        }
+        return m_ponderer.Take(a_board, m_color, GetTimeControl().GetSoftDeadline());
+    }
+
+    /**
+     * To determine the best move by scoring every move one ply deep
+     * @param a_board a final Board object, the current state of the board
+     * @param a_nextPlayer a final Player object, the next player to move
+     */
+    /*
+    Algorithm:
+        1) For every candidate position, i.e. near a stone, play as ourselves, and
+            play as the next player. A position far from every stone never scores
+            better than one near them
         2) Record the move made and the evaluation score of it for our move and
             the next player's move
         3) Determine the best move to make based on this score, add to a list
@@ -313,49 +675,47 @@ public class Player implements Serializable, Cloneable {
     Assistance Received: Inspiration of computer strategy from
         https://www.youtube.com/watch?v=SLgZhpDsrfc&t=531s (minimax algorithm)
      */
-    protected void BestMove(final Board a_board, final Player a_nextPlayer) {
+    protected void GreedyMove(final Board a_board, final Player a_nextPlayer) {
         // Don't touch main board
         Board boardCopy = a_board.clone();
 
-        String currPosition;
         ComputerMove ourBest = new ComputerMove(); ComputerMove theirBest = new ComputerMove();
-        ComputerMove ourMove; ComputerMove theirMove;
+        int ourScore; int theirScore;
 
         Vector<ComputerMove> topMoves = new Vector<ComputerMove>();
-        // For every position on the board, play as ourselves, and play as the next player
+        // For every candidate position, play as ourselves, and play as the next player
         // Evaluate the move, and store the best move
         // If there are multiple moves with the same score, add it to a vector of top moves
-        for (int row = 0; row < Board.BOARD_SIZE; row++) {
-            for (int column = 0; column < Board.BOARD_SIZE; column++) {
-                // I did not separate out this into another function as I believe ints more readable
-                // in this case. I want to show that the current player is moving for itself,
-                // and then the next player is moving for itself. Though worse of for modifiability,
-                // I believe it's a good trade off.
-                currPosition = Board.IndicesToString(row, column);
-
-                /* Place for us */
-                if (boardCopy.PlaceStone(m_color, currPosition) != Codes.ReturnCode.SUCCESS) {
-                    continue;
-                }
-                ourMove = EvaluateMove(boardCopy, this);
-                boardCopy.UndoMove();
-
-                /* Place for them */
-                if (boardCopy.PlaceStone(a_nextPlayer.GetColor(), currPosition) != Codes.ReturnCode.SUCCESS) {
-                    continue;
-                }
-                theirMove = EvaluateMove(boardCopy, a_nextPlayer);
-                boardCopy.UndoMove();
-
-                // Check to see if highest score
-                if (ourMove.evalScore >= ourBest.evalScore) {
-                    ourBest = ourMove;
-                    topMoves.add(ourMove);
-                }
-                if (theirMove.evalScore >= theirBest.evalScore) {
-                    theirBest = theirMove;
-                    topMoves.add(theirMove);
-                }
+        PrimitiveIterator.OfInt candidates = boardCopy.GetCandidateIterator();
+        while (candidates.hasNext()) {
+            final int cell = candidates.nextInt();
+            // I did not separate out this into another function as I believe ints more readable
+            // in this case. I want to show that the current player is moving for itself,
+            // and then the next player is moving for itself. Though worse of for modifiability,
+            // I believe it's a good trade off.
+
+            /* Place for us */
+            if (boardCopy.PlaceStone(m_color, cell) != Codes.ReturnCode.SUCCESS) {
+                continue;
+            }
+            ourScore = EvaluateScore(boardCopy, m_color);
+            boardCopy.UndoMove();
+
+            /* Place for them */
+            if (boardCopy.PlaceStone(a_nextPlayer.GetColor(), cell) != Codes.ReturnCode.SUCCESS) {
+                continue;
+            }
+            theirScore = EvaluateScore(boardCopy, a_nextPlayer.GetColor());
+            boardCopy.UndoMove();
+
+            // Check to see if highest score, only creating the move if it is one
+            if (ourScore >= ourBest.evalScore) {
+                ourBest = NewComputerMove(Board.CellToPosition(cell), m_color, ourScore);
+                topMoves.add(ourBest);
+            }
+            if (theirScore >= theirBest.evalScore) {
+                theirBest = NewComputerMove(Board.CellToPosition(cell), a_nextPlayer.GetColor(), theirScore);
+                topMoves.add(theirBest);
             }
         }
 
@@ -370,76 +730,86 @@ public class Player implements Serializable, Cloneable {
      * @return A object ComputerMove, containing the position, evaluation
      *     score, color, and reason for the move
      */
+    protected ComputerMove EvaluateMove(final Board a_board, final Player a_player) {
+        return NewComputerMove(a_board.GetLastPosition(), a_player.GetColor(),
+                EvaluateScore(a_board, a_player.GetColor()));
+    }
+
+    /**
+     * To get the evaluation score of the last move made on the board,
+     *     i.e. how good the move is, without creating any objects
+     * @param a_board a final Board object, the current state of the board
+     * @param a_color a character, the color of the player who made the move
+     * @return The evaluation score of the move, an integer
+     */
     /*
     Algorithm:
-        1) Set the multiplier values for the evaluation, i.e. how much we care
-            about winning, capturing, and building (in current implementation,
-            win takes priority, then capture, then build)
-        2) Based on moved, increase the evaluation score if the move is a win,
-            capture, or build
+        1) Look up the score of the line through the move in each cardinal plane,
+            the PatternTable rates every window of intersections around a stone
+            once, e.g. fives, open and closed fours, capture threats
+        2) Shapes alone never score as much as a capture, unless they are a win
         3) If move could result in a potential capture, only for our move,
             decrease the evaluation score - we do not want to place there
-        4) Set the reason for the move based on the score, and return the move
+        4) Add the pairs the move captured
     Assistance Received: Inspiration of computer strategy from
         https://www.youtube.com/watch?v=SLgZhpDsrfc&t=531s (minimax algorithm)
      */
     // Though not necessary to be in protected, if a base class wanted to change
     // how a computer evaluates a move or determines the best we can allow them to
     // do so by making them protected
-    protected ComputerMove EvaluateMove(final Board a_board, final Player a_player) {
-        // Adjustable constants to put more emphasis on certain moves
-        // We care the most about winning, then capturing, then building
-        final int WIN_MULTI = 10000;
-        final int CAPTURE_MULTI = 2000;
-        final int BUILD_MULTI = 5;
-
+    protected int EvaluateScore(final Board a_board, char a_color) {
         // Holds the evaluation score of the move, i.e. how good it is
         int evalScore = 0;
 
-        ComputerMove move = new ComputerMove();
-        move.position = a_board.GetLastPosition();
-        move.color = a_player.GetColor();
-
         // Get where we are on the board
-        // Need a position pair to be able to directly get row and column
-        Board.PositionPair rawPosition = new Board.PositionPair();
-        Board.ParsePosition(move.position, rawPosition);
-        int row = rawPosition.row; int column = rawPosition.column;
-
-        /* Win */
-        evalScore += WIN_MULTI * a_board.GetWinInARow();
-
-        /* Building Blocks */
-        int blockCount = 0;
-        for (int n = Board.WIN_SCORE - 1; n > 1; n--) {
-            blockCount += a_board.GetNumNInARow(n, row, column) - a_board.GetWinInARow();
-            evalScore += BUILD_MULTI * blockCount * n * n;
+        int cell = a_board.GetLastIndex();
+
+        /* Win and Building Blocks */
+        int risks = 0;
+        for (int plane = 0; plane < Board.NUM_PLANES; plane++) {
+            int window = a_board.GetPatternWindow(cell, plane);
+            evalScore += PatternTable.SCORES[window];
+            risks += PatternTable.CAPTURE_RISKS[window];
         }
-        // Prioritize building block instead of preventing one from forming
-        // Incentive for us to gain more points by building larger blocks
-        if (blockCount > 0 && m_color == a_player.GetColor()) {
-            evalScore += BUILD_MULTI;
+        if (evalScore < WIN_MULTI) {
+            evalScore = Math.min(evalScore, CAPTURE_MULTI - 1);
         }
 
         /* Avoiding Captures */
         // Only if we're the one moving - don't want to avoid captures on their turn
-        if (evalScore < WIN_MULTI && m_color == a_player.GetColor()) {
-            evalScore -= CAPTURE_MULTI * a_board.GetPotentialCaptures(a_player.m_color, row, column);
+        if (evalScore < WIN_MULTI && m_color == a_color) {
+            evalScore -= CAPTURE_MULTI * risks;
         }
 
         /* Capturing */
         evalScore += CAPTURE_MULTI * a_board.GetCapturedPairs();
 
+        return evalScore;
+    }
+
+    /**
+     * To create a move for the computer strategy, with the reason for the move
+     *     taken from the evaluation score
+     * @param a_position a string, the position of the move
+     * @param a_color a character, the color of the player making the move
+     * @param a_evalScore an integer, the evaluation score of the move
+     * @return A object ComputerMove, containing the position, evaluation
+     *     score, color, and reason for the move
+     */
+    protected static ComputerMove NewComputerMove(final String a_position, char a_color, int a_evalScore) {
+        ComputerMove move = new ComputerMove();
+        move.position = a_position;
+        move.color = a_color;
+        move.evalScore = a_evalScore;
+
         // Easy way to see if what move we made is to check the eval score multipliers
-        move.evalScore = evalScore;
-        // Determine the reason for the move
-        if (evalScore >= WIN_MULTI) {
+        if (a_evalScore >= WIN_MULTI) {
             move.reason = MoveReason.WIN;
         }
-        else if (evalScore >= CAPTURE_MULTI) {
+        else if (a_evalScore >= CAPTURE_MULTI) {
             move.reason = MoveReason.CAPTURE;
         }
-        else if (evalScore > 0) {
+        else if (a_evalScore > 0) {
             move.reason = MoveReason.BUILD;
         }
         else {
@@ -502,7 +872,7 @@ public class Player implements Serializable, Cloneable {
 
         // If second white move, set our specific values to a ring around center
         // We want to be close to the center in order to build blocks
-        // Hardcoded as it's the easiest implementation (3 because must be 3 away)
+        // Hardcoded for when there is no opening book (3 because must be 3 away)
         if (a_board.GetInnerBounds() == 3) {
             m_bestMove.reason = MoveReason.BOARD_RESTRICTION;
             final String[] VALUES = {"J7", "M10", "J13", "G10"};
@@ -535,6 +905,9 @@ public class Player implements Serializable, Cloneable {
             case BOARD_RESTRICTION:
                 reason = " because of a board restriction, no other moves available";
                 break;
+            case OPENING:
+                reason += "follow a known opening";
+                break;
             default:
                 reason = "ERROR: Unknown reason";
                 break;
@@ -543,15 +916,30 @@ public class Player implements Serializable, Cloneable {
         return reason;
     }
 
+    /**
+     * To score every move on the board in one pass, for the player and for the next
+     *     player, e.g. to show the player where the good moves are as a heat map
+     * @param a_board a final Board object, the current state of the board
+     * @param a_nextPlayer a final Player object, the next player to move
+     * @return The scores of every move, a HintMap object
+     */
+    public HintMap GetHintMap(final Board a_board, final Player a_nextPlayer) {
+        return HintMap.Compute(this, a_board, a_nextPlayer.GetColor());
+    }
+
     /**
      *  Gets help from computer if the player asks for help, i.e.
      *     what computer thinks is the best move to make
      * @param a_board a final Board object, the current state of the board
      * @param a_nextPlayer a final Player object, the next player to move
-     * @return A copy of ComputerMove object, the best move to make
+     * @return A copy of ComputerMove object, the best move to make. null if cancelled,
+     *     see CancelMove
      */
     public ComputerMove GetHelp(final Board a_board, final Player a_nextPlayer) {
         BestMove(a_board, a_nextPlayer);
+        if (m_cancelled) {
+            return null;
+        }
         m_bestMove.formattedReason = "The computer recommends you play at "
                 + m_bestMove.position + GetReasonMessage();
         GameLog.AddMessage(m_bestMove.formattedReason);
@@ -0,0 +1,221 @@
+//
+//  Ponderer - searches on the opponent's time, for the move after the reply it expects
+//
+
+package edu.ramapo.rpodziel.pente.model;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class Ponderer {
+    /* Class Constants */
+
+    // Time spent guessing the opponent's reply, before pondering on it
+    static final long PREDICT_TIME = 100;
+    // Nothing guessed yet. A position keyed 0 is as unlikely as any other collision
+    private static final long NO_KEY = 0;
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+
+    /* Private Members */
+
+    // The engine of the player pondering, so the table it fills is the one
+    // the player's next search reads
+    private final SearchEngine m_engine;
+    // Runs one ponder at a time, made when first pondering
+    private ExecutorService m_executor;
+    private Future<SearchEngine.Result> m_future;
+
+    // Key of the position pondered, set by the ponder thread once the reply is guessed
+    private volatile long m_predictedKey;
+    // The System.nanoTime() the position started being pondered, set before the key
+    private volatile long m_ponderStart;
+
+
+    /* Constructors */
+
+    /**
+     * @param a_engine a SearchEngine object. The engine to ponder with, never used
+     *     by anything else while pondering, see Take and Stop
+     */
+    public Ponderer(SearchEngine a_engine) {
+        m_engine = a_engine;
+        m_executor = null;
+        m_future = null;
+        m_predictedKey = NO_KEY;
+        m_ponderStart = 0;
+    }
+
+
+    /* Accessors */
+
+    public boolean IsPondering() {
+        return m_future != null;
+    }
+
+
+    /* Mutators */
+
+    /**
+     * To start pondering while the opponent thinks, stopping any ponder already running
+     * @param a_board a final Board object. The position the opponent moves in, not changed
+     * @param a_otherColor a character. The color of the opponent, to move next
+     * @param a_color a character. The color of the player pondering
+     * @param a_plyCount an integer. The plies played so far in the round, for the
+     *     bounds restriction after the opponent's reply
+     * @return A ReturnCode representing the success of starting to ponder
+     */
+    public Codes.ReturnCode Start(final Board a_board, char a_otherColor, char a_color, int a_plyCount) {
+        Stop();
+        if (m_executor == null) {
+            m_executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "Ponderer");
+                // Never keeps the app alive, and gives way to the opponent's own thread
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+        }
+
+        // Copied here, the round's board changes once the opponent moves
+        final Board BOARD = a_board.clone();
+        m_predictedKey = NO_KEY;
+        m_engine.ClearStop();
+        m_future = m_executor.submit(() -> Ponder(BOARD, a_otherColor, a_color, a_plyCount + 1));
+        return Codes.ReturnCode.SUCCESS;
+    }
+
+    /**
+     * To take what pondering found for the position the opponent left, stopping the ponder
+     * @param a_board a final Board object. The position to move in, with its bounds set
+     * @param a_color a character. The color of the player pondering
+     * @param a_deadline a long. The System.nanoTime() a search started now would stop
+     *     starting new depths at. The time already pondered counts towards it
+     * @return The move pondered, a SearchEngine.Result object. null if not pondering,
+     *     or if the opponent replied with a move that wasn't guessed
+     */
+    /*
+    Algorithm:
+        1) Nothing to take if not pondering
+        2) The ponder guessed the reply if the positions' keys match, with the same
+            player to move. If so it may go on until it has searched as long as a
+            search up to the deadline would, often not at all. If not it is of no use
+        3) Either way stop it and wait for it to return, then let the engine search
+            again, it is needed next. What it put in the transposition table is kept
+            for the search that follows
+        4) Only give back a move from the position guessed
+     */
+    public SearchEngine.Result Take(final Board a_board, char a_color, long a_deadline) {
+        if (m_future == null) {
+            return null;
+        }
+        long keyChange = (a_board.GetNextColor() != a_color) ? Zobrist.BLACK_TO_MOVE_KEY : 0;
+        boolean predicted = m_predictedKey == (a_board.GetZobristKey() ^ keyChange);
+
+        SearchEngine.Result result = null;
+        try {
+            if (predicted) {
+                long now = System.nanoTime();
+                long wait = Math.max(0, (a_deadline - now) - (now - m_ponderStart));
+                try { result = m_future.get(wait, TimeUnit.NANOSECONDS); }
+                catch (TimeoutException e) { result = null; }
+            }
+            m_engine.Stop();
+            SearchEngine.Result stopped = m_future.get();
+            if (result == null) {
+                result = stopped;
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result = null;
+        }
+        catch (ExecutionException e) {
+            result = null;
+        }
+        m_engine.ClearStop();
+        m_future = null;
+        m_predictedKey = NO_KEY;
+
+        if (!predicted || result == null || result.cell == Board.NO_CELL) {
+            return null;
+        }
+        return result;
+    }
+
+    /**
+     * To stop pondering, throwing away what it found other than the table entries
+     */
+    public void Stop() {
+        if (m_future == null) {
+            return;
+        }
+        m_engine.Stop();
+        try { m_future.get(); }
+        catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        catch (ExecutionException e) { /* Nothing to keep from a failed ponder */ }
+        m_engine.ClearStop();
+        m_future = null;
+        m_predictedKey = NO_KEY;
+    }
+
+    /**
+     * To stop pondering and let its thread end, e.g. when the game is left
+     */
+    public void Shutdown() {
+        Stop();
+        if (m_executor != null) {
+            m_executor.shutdown();
+            m_executor = null;
+        }
+    }
+
+
+    /* Main for Debug */
+    public static void main(String[] args) { }
+
+
+    /* Private Utility Functions */
+
+    /**
+     * To ponder on the ponder thread, see Start
+     * @param a_board a Board object. A copy of the position the opponent moves in
+     * @param a_otherColor a character. The color of the opponent
+     * @param a_color a character. The color of the player pondering
+     * @param a_nextPly an integer. The ply the player pondering will move on
+     * @return The move found after the guessed reply, a SearchEngine.Result object.
+     *     Result.cell is Board.NO_CELL if there was nothing to ponder
+     */
+    /*
+    Algorithm:
+        1) Guess the opponent's reply with a short search of their position
+        2) Play it, and restrict the board as the round will for our move
+        3) Nothing to ponder if the round is over, or if the bounds are restricted -
+            the player doesn't search those moves
+        4) Let Take know the position, then search it until stopped or the max depth
+     */
+    private SearchEngine.Result Ponder(Board a_board, char a_otherColor, char a_color, int a_nextPly) {
+        SearchEngine.Result reply = m_engine.Ponder(a_board, a_otherColor,
+                System.nanoTime() + PREDICT_TIME * NANOS_PER_MILLI);
+        if (reply.cell == Board.NO_CELL
+                || a_board.PlaceStone(a_otherColor, reply.cell) != Codes.ReturnCode.SUCCESS
+                || a_board.IsWinningMove() || a_board.IsBoardFull()) {
+            return new SearchEngine.Result();
+        }
+        Round.SetBoardRestriction(a_board, a_nextPly);
+        if (a_board.GetInnerBounds() > 0 || a_board.GetOuterBounds() < Board.BOARD_SIZE) {
+            return new SearchEngine.Result();
+        }
+
+        a_board.SetNextColor(a_color);
+        m_ponderStart = System.nanoTime();
+        m_predictedKey = a_board.GetZobristKey();
+        return m_engine.Ponder(a_board, a_color, Long.MAX_VALUE);
+    }
+
+}
@@ -0,0 +1,171 @@
+//
+//  Root split search - the root moves of one depth searched in parallel on a ForkJoinPool
+//
+
+package edu.ramapo.rpodziel.pente.model;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+final class RootSplit {
+    /* Private Members */
+
+    // One searcher per worker, each with its own board and scratch buffers
+    private final Searcher[] m_searchers;
+
+    // Root moves, best first, shared read only while a depth is searched
+    private final int[] m_rootMoves;
+    private final int m_numRootMoves;
+
+    // Index of the next root move a worker should take
+    private final AtomicInteger m_nextIndex;
+    // Best score any worker has found this depth, raised as moves finish
+    private final AtomicInteger m_alpha;
+    // Score of each root move and if it is exact, by index into m_rootMoves
+    private final int[] m_scores;
+    private final boolean[] m_exact;
+    private volatile boolean m_stopped;
+
+
+    /* Constructors */
+
+    /**
+     * @param a_searchers a Searcher array. One per worker, each on its own copy of the same board
+     */
+    RootSplit(Searcher[] a_searchers) {
+        m_searchers = a_searchers;
+        m_rootMoves = new int[Board.NUM_CELLS];
+        m_numRootMoves = a_searchers[0].GetRootMoves(m_rootMoves);
+        m_nextIndex = new AtomicInteger();
+        m_alpha = new AtomicInteger();
+        m_scores = new int[Board.NUM_CELLS];
+        m_exact = new boolean[Board.NUM_CELLS];
+        m_stopped = false;
+    }
+
+
+    /* Accessors */
+
+    /**
+     * To get the nodes searched by every worker
+     * @return The total nodes, a long
+     */
+    long GetNodes() {
+        long nodes = 0;
+        for (Searcher searcher : m_searchers) {
+            nodes += searcher.GetNodes();
+        }
+        return nodes;
+    }
+
+
+    /* Mutators */
+
+    /**
+     * To search every root move to a depth, split between the workers of a pool
+     * @param a_pool a ForkJoinPool. The pool to search on
+     * @param a_depth an integer. The depth to search to, in plies
+     * @param a_best an integer array of 2. Filled with the best cell and its score
+     * @return true if the depth was searched completely, false if stopped
+     */
+    /*
+    Algorithm:
+        1) Search the first root move alone, it is the best of the last depth
+            and gives every worker a good score to beat
+        2) Each worker takes the next root move not yet taken until there are none,
+            sharing the best score
+        3) Take the move with the highest exact score, the first root move on a tie
+            so the result doesn't depend on which worker finished first
+        4) Move the best root move to the front for the next depth
+     */
+    boolean SearchDepth(ForkJoinPool a_pool, int a_depth, int[] a_best) {
+        if (m_numRootMoves == 0) {
+            return false;
+        }
+
+        m_alpha.set(-Searcher.INFINITY);
+
+        SearchMove(m_searchers[0], 0, a_depth);
+        if (!m_stopped) {
+            m_nextIndex.set(1);
+            RootTask[] tasks = new RootTask[m_searchers.length];
+            for (int worker = 0; worker < tasks.length; worker++) {
+                tasks[worker] = new RootTask(m_searchers[worker], a_depth);
+            }
+            for (RootTask task : tasks) {
+                a_pool.execute(task);
+            }
+            for (RootTask task : tasks) {
+                task.join();
+            }
+        }
+        if (m_stopped) {
+            return false;
+        }
+
+        int bestIndex = 0;
+        for (int index = 1; index < m_numRootMoves; index++) {
+            if (m_exact[index] && m_scores[index] > m_scores[bestIndex]) {
+                bestIndex = index;
+            }
+        }
+
+        int bestCell = m_rootMoves[bestIndex];
+        int bestScore = m_scores[bestIndex];
+        System.arraycopy(m_rootMoves, 0, m_rootMoves, 1, bestIndex);
+        m_rootMoves[0] = bestCell;
+
+        a_best[0] = bestCell;
+        a_best[1] = bestScore;
+        return true;
+    }
+
+
+    /* Private Utility Functions */
+
+    /**
+     * To search one root move, raising the shared best score
+     * @param a_searcher a Searcher. The worker's searcher
+     * @param a_index an integer. The index of the move in m_rootMoves
+     * @param a_depth an integer. The depth to search to, in plies
+     */
+    private void SearchMove(Searcher a_searcher, int a_index, int a_depth) {
+        // One below the best so far, so a move that ties it still gets an exact score
+        int alpha = m_alpha.get();
+        int window = (alpha == -Searcher.INFINITY) ? alpha : alpha - 1;
+
+        int score = a_searcher.SearchRootMove(m_rootMoves[a_index], a_depth, window);
+        if (a_searcher.IsStopped()) {
+            m_stopped = true;
+        }
+        m_scores[a_index] = score;
+        m_exact[a_index] = score > window;
+
+        // Raise the shared best score, unless another worker raised it higher first
+        int current = m_alpha.get();
+        while (score > current && !m_alpha.compareAndSet(current, score)) {
+            current = m_alpha.get();
+        }
+    }
+
+    // A worker searching root moves with its own searcher until none are left
+    private final class RootTask extends RecursiveAction {
+        private final Searcher m_searcher;
+        private final int m_depth;
+
+        RootTask(Searcher a_searcher, int a_depth) {
+            m_searcher = a_searcher;
+            m_depth = a_depth;
+        }
+
+        @Override
+        protected void compute() {
+            for (int index = m_nextIndex.getAndIncrement(); index < m_numRootMoves && !m_stopped;
+                 index = m_nextIndex.getAndIncrement()) {
+                SearchMove(m_searcher, index, m_depth);
+            }
+        }
+    }
+
+}
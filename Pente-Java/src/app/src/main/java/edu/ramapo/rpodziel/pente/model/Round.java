@@ -47,6 +47,9 @@ public class Round implements Serializable {
 
     // Board information
     private Board m_board;
+    // Snapshot of the board after the last change, any thread can read it
+    // without locking or cloning, see GetBoardSnapshot
+    private volatile BoardSnapshot m_boardSnapshot;
     private boolean m_isSerializedGame;
     private int m_numWinInARow;
 
@@ -65,6 +68,7 @@ public class Round implements Serializable {
         m_currPlayerIndex = DEFAULT_START_INDEX;
         m_winner = null;
         m_board = new Board();
+        m_boardSnapshot = m_board.GetSnapshot();
         m_isSerializedGame = DEFAULT_SERIALIZED;
         m_numWinInARow = DEFAULT_WIN_SCORE;
 
@@ -76,12 +80,21 @@ public class Round implements Serializable {
     /* Accessors */
 
     /**
-     * To get a copy of the round's current board state
+     * To get a copy of the round's current board state. Cheap to call, the
+     *     copy shares the board until either one changes, see Board.clone
      * @return The current round's board, a Board object copy
      */
     public Board GetRoundBoard() {
         return m_board.clone();
     }
+
+    /**
+     * To get the latest snapshot of the round's board, safe to call from any thread
+     * @return The board as of the last ply or restriction change, a BoardSnapshot object
+     */
+    public BoardSnapshot GetBoardSnapshot() {
+        return m_boardSnapshot;
+    }
     public Vector<Player> GetPlayers() {
         // Create deep copy of players
         Vector<Player> players = new Vector<Player>();
@@ -181,6 +194,7 @@ public class Round implements Serializable {
     public Codes.ReturnCode Start() {
         // Just need to set where the first move can be placed, i.e. bounds
         SetBoardRestriction();
+        StartPondering();
         return Codes.ReturnCode.SUCCESS;
     }
 
@@ -272,11 +286,19 @@ public class Round implements Serializable {
         }
 
         // Update the round's state from the serialized game
+        StopPondering();
         m_board = a_board;
         m_players = a_players;
         m_human = a_human;
         m_computer = a_computer;
 
+        // Board needs to know who is next and the pairs captured so far to identify the position
+        m_board.SetNextColor(m_players.get(DEFAULT_START_INDEX).GetColor());
+        for (Player player : m_players) {
+            m_board.SetCapturedPairs(player.GetColor(), player.GetCapturedPairs());
+        }
+        m_boardSnapshot = m_board.GetSnapshot();
+
         // Let the round we are playing a serialized game
         m_isSerializedGame = true;
         m_currPlayerIndex = DEFAULT_START_INDEX;
@@ -314,6 +336,7 @@ public class Round implements Serializable {
             GameLog.AddMessage(Codes.GetMessage(status));
             return false;
         }
+        m_boardSnapshot = m_board.GetSnapshot();
 
         GameLog.AddMessage(currPlayer.GetNameAndColor() + ", placed a stone at "
                 + m_board.GetLastPosition() + "!");
@@ -342,9 +365,90 @@ public class Round implements Serializable {
         // Log the end scores
         RecordEndPly();
 
+        // Let the computer think on the human's time
+        StartPondering();
+
         return false;
     }
 
+    /**
+     * To find the move the current player is recommended, see Player.GetHelp. The
+     *     round's own player is asked, so CancelPly reaches its search and the
+     *     engine, with what its table learnt, is kept for the next time
+     * @return The move recommended, a Player.ComputerMove object. null if cancelled
+     */
+    public Player.ComputerMove GetHelp() {
+        return m_players.get(m_currPlayerIndex).GetHelp(GetRoundBoard(), GetNextPlayer());
+    }
+
+    /**
+     * To score every move for the current player and the next, see Player.GetHintMap
+     * @return The scores of every move, a HintMap object
+     */
+    public HintMap GetHintMap() {
+        return m_players.get(m_currPlayerIndex).GetHintMap(GetRoundBoard(), GetNextPlayer());
+    }
+
+    /**
+     * To stop the players thinking on their opponent's time, e.g. when the game
+     *     is paused or left. It starts again after the next ply
+     * @return A Codes.ReturnCode, the status of stopping
+     */
+    public Codes.ReturnCode StopPondering() {
+        for (Player player : m_players) {
+            player.StopPondering();
+        }
+        return Codes.ReturnCode.SUCCESS;
+    }
+
+    /**
+     * To stop the players thinking and let their threads end, e.g. when the game is
+     *     left. They are started again if the round is played on
+     * @return A Codes.ReturnCode, the status of shutting down
+     */
+    public Codes.ReturnCode Shutdown() {
+        for (Player player : m_players) {
+            player.Shutdown();
+        }
+        return Codes.ReturnCode.SUCCESS;
+    }
+
+    /**
+     * To stop the ply being made from another thread, e.g. when the game is paused.
+     *     FacilitatePly then returns without the ply, until AllowPly is called
+     * @return A Codes.ReturnCode, the status of cancelling
+     */
+    public Codes.ReturnCode CancelPly() {
+        for (Player player : m_players) {
+            player.CancelMove();
+        }
+        return Codes.ReturnCode.SUCCESS;
+    }
+
+    /**
+     * To let plies be made again after CancelPly
+     * @return A Codes.ReturnCode, the status of allowing plies
+     */
+    public Codes.ReturnCode AllowPly() {
+        for (Player player : m_players) {
+            player.AllowMove();
+        }
+        return Codes.ReturnCode.SUCCESS;
+    }
+
+    /**
+     * To set what is told of the players' search progress, e.g. to show the
+     *     computer is thinking
+     * @param a_listener a SearchEngine.ProgressListener. null to stop telling anything
+     * @return A Codes.ReturnCode, the status of setting the listener
+     */
+    public Codes.ReturnCode SetProgressListener(SearchEngine.ProgressListener a_listener) {
+        for (Player player : m_players) {
+            player.SetProgressListener(a_listener);
+        }
+        return Codes.ReturnCode.SUCCESS;
+    }
+
     /**
      * To start another game from one already played, i.e. reset the round
      * @return A Codes.ReturnCode, the status of the reset
@@ -368,13 +472,16 @@ public class Round implements Serializable {
         2) Reset the board
      */
     public Codes.ReturnCode Reset() {
+        StopPondering();
         // Reset the players for our new round
         for (Player player : m_players) {
             player.ResetCapturedPairs();
             player.SetColor(Player.DEFAULT_COLOR);
+            player.GetTimeControl().ResetClock();
         }
 
         m_board = new Board();
+        m_boardSnapshot = m_board.GetSnapshot();
 
         // Let the round know we are not playing a serialized game
         m_isSerializedGame = DEFAULT_SERIALIZED;
@@ -464,26 +571,60 @@ public class Round implements Serializable {
         switch (m_plyCount) {
             // First move must be placed in the center of the board
             case 0:
-                m_board.SetBounds(0, 0);
                 GameLog.AddMessage("First white move must be placed on the center of the board at "
                         + Board.CENTER_POSITION + "!");
                 break;
             // Second move must be placed at least 3 stones away from the center of the board
             case 2:
-                m_board.SetBounds(3, Board.BOARD_SIZE);
                 GameLog.AddMessage("Second white move must be placed at least 3 stones away from the center of the board at "
                         + Board.CENTER_POSITION + "!");
                 break;
             // All other moves have no restrictions
             default:
-                m_board.SetBounds(0, Board.BOARD_SIZE);
                 break;
         }
+        SetBoardRestriction(m_board, m_plyCount);
+        m_boardSnapshot = m_board.GetSnapshot();
+
         // Formatting
         GameLog.AddMessage("");
 
     }
 
+    /**
+     * To set the bounds restriction of a board for a ply of the round, e.g. for
+     *     the opening book to see the same positions a round does
+     * @param a_board a Board object. The board to restrict
+     * @param a_plyCount an integer. The plies played so far in the round
+     */
+    static void SetBoardRestriction(Board a_board, int a_plyCount) {
+        switch (a_plyCount) {
+            // First move must be placed in the center of the board
+            case 0:
+                a_board.SetBounds(0, 0);
+                break;
+            // Second white move must be at least 3 stones away from the center
+            case 2:
+                a_board.SetBounds(3, Board.BOARD_SIZE);
+                break;
+            default:
+                a_board.SetBounds(0, Board.BOARD_SIZE);
+                break;
+        }
+    }
+
+    /**
+     * To let the player waiting think on their opponent's time, if the player to
+     *     move is the one giving input, i.e. the human
+     */
+    private void StartPondering() {
+        Player currPlayer = m_players.get(m_currPlayerIndex);
+        Player waitingPlayer = m_players.get(NextPlayerIndex(m_currPlayerIndex));
+        if (currPlayer.RequiresInput() && !waitingPlayer.RequiresInput()) {
+            waitingPlayer.StartPondering(m_board, currPlayer.GetColor(), m_plyCount);
+        }
+    }
+
     /**
      * To get the index of the next player, i.e. the player whose ply
      *     it is to make a move
@@ -0,0 +1,305 @@
+//
+//  Round worker - makes a round's plies and finds hints off the caller's thread, e.g. the UI's
+//
+
+package edu.ramapo.rpodziel.pente.model;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class RoundWorker {
+    /* Class Constants */
+
+    // Told of a ply or hint as it goes. Every function is called on the worker's
+    // thread, the caller must move to its own thread to e.g. change views
+    public interface Callback<T> {
+        // Each depth the search finished, i.e. the computer is still thinking
+        void OnProgress(final SearchEngine.Result a_progress);
+        // The result, the round may be read again
+        void OnDone(T a_result);
+        // Cancelled before it was made, e.g. no stone was placed
+        void OnCancelled();
+        // Threw before it was done, the round may have been left part way through it
+        void OnFailed(Throwable a_failure);
+    }
+
+
+    /* Private Members */
+
+    private final Round m_round;
+    // Runs one task at a time, in the order given, so only it changes the round
+    private ExecutorService m_executor;
+    // The task given last, only used on the caller's thread
+    private Task<?> m_task;
+
+
+    /* Constructors */
+
+    /**
+     * @param a_round a Round object. The round to make plies in, only changed
+     *     by the worker from now on
+     */
+    public RoundWorker(Round a_round) {
+        m_round = a_round;
+        m_executor = null;
+        m_task = null;
+    }
+
+
+    /* Accessors */
+
+    /**
+     * To see if a ply or hint is being made, the round mustn't be read until it's done
+     * @return a boolean, true if the last task given hasn't finished, false otherwise
+     */
+    public boolean IsBusy() {
+        return m_task != null && !m_task.IsFinished();
+    }
+
+
+    /* Mutators */
+
+    /**
+     * To make the current player's ply, see Round.FacilitatePly
+     * @param a_position a String. The position to place at, or anything for the computer
+     * @param a_callback a Callback. Told if the ply resulted in an endgame
+     * @return A Codes.ReturnCode, BUSY if the last task hasn't finished
+     */
+    public Codes.ReturnCode FacilitatePly(final String a_position, final Callback<Boolean> a_callback) {
+        if (IsBusy()) {
+            return Codes.ReturnCode.BUSY;
+        }
+        Submit(new Task<Boolean>(a_callback) {
+            private BoardSnapshot m_before;
+
+            @Override
+            void Begin() {
+                m_before = m_round.GetBoardSnapshot();
+            }
+
+            @Override
+            Boolean Run() {
+                return m_round.FacilitatePly(a_position);
+            }
+
+            @Override
+            boolean IsMade(Boolean a_result) {
+                // A new snapshot is only taken once a stone is placed
+                return m_round.GetBoardSnapshot() != m_before;
+            }
+        });
+        return Codes.ReturnCode.SUCCESS;
+    }
+
+    /**
+     * To find the move the current player is recommended, see Round.GetHelp
+     * @param a_callback a Callback. Told the move recommended
+     * @return A Codes.ReturnCode, BUSY if the last task hasn't finished
+     */
+    public Codes.ReturnCode GetHelp(final Callback<Player.ComputerMove> a_callback) {
+        if (IsBusy()) {
+            return Codes.ReturnCode.BUSY;
+        }
+        Submit(new Task<Player.ComputerMove>(a_callback) {
+            @Override
+            Player.ComputerMove Run() {
+                return m_round.GetHelp();
+            }
+
+            @Override
+            boolean IsMade(Player.ComputerMove a_result) {
+                return a_result != null;
+            }
+        });
+        return Codes.ReturnCode.SUCCESS;
+    }
+
+    /**
+     * To score every move for the current player and the next, see Round.GetHintMap
+     * @param a_callback a Callback. Told the scores, it is never told any progress
+     * @return A Codes.ReturnCode, BUSY if the last task hasn't finished
+     */
+    public Codes.ReturnCode GetHintMap(final Callback<HintMap> a_callback) {
+        if (IsBusy()) {
+            return Codes.ReturnCode.BUSY;
+        }
+        Submit(new Task<HintMap>(a_callback) {
+            @Override
+            HintMap Run() {
+                return m_round.GetHintMap();
+            }
+
+            @Override
+            boolean IsMade(HintMap a_result) {
+                return true;
+            }
+        });
+        return Codes.ReturnCode.SUCCESS;
+    }
+
+    /**
+     * To stop the players thinking on their opponent's time, after the last task given
+     * @return A Codes.ReturnCode, the status of queueing the stop
+     */
+    public Codes.ReturnCode StopPondering() {
+        GetExecutor().execute(m_round::StopPondering);
+        return Codes.ReturnCode.SUCCESS;
+    }
+
+    /**
+     * To cancel the last task given, e.g. when the game is paused. It returns soon
+     *     after, its callback told OnCancelled. Doesn't wait for it
+     */
+    public void Cancel() {
+        if (m_task != null) {
+            m_task.Cancel();
+        }
+    }
+
+    /**
+     * To cancel the last task, then let the players' threads and the worker's thread end
+     */
+    public void Shutdown() {
+        Cancel();
+        // After the last task, so the players are done with their engines
+        GetExecutor().execute(m_round::Shutdown);
+        m_executor.shutdown();
+        m_executor = null;
+    }
+
+
+    /* Main for Debug */
+    public static void main(String[] args) { }
+
+
+    /* Private Utility Functions */
+
+    /**
+     * To get the thread tasks run on, starting it if needed
+     * @return The executor, an ExecutorService of one thread
+     */
+    private ExecutorService GetExecutor() {
+        if (m_executor == null) {
+            m_executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "RoundWorker");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return m_executor;
+    }
+
+    /**
+     * To run a task on the worker's thread
+     * @param a_task a Task object. The task, kept so it can be cancelled
+     */
+    private void Submit(Task<?> a_task) {
+        m_task = a_task;
+        GetExecutor().execute(a_task);
+    }
+
+    // A ply or hint - runs once on the worker's thread, telling its callback how it went
+    private abstract class Task<T> implements Runnable {
+        private final Callback<T> m_callback;
+        // Guarded by the task, so cancelling never slips in between starting and allowing moves
+        private boolean m_cancelled;
+        private boolean m_started;
+        private volatile boolean m_finished;
+
+        Task(Callback<T> a_callback) {
+            m_callback = a_callback;
+            m_cancelled = false;
+            m_started = false;
+            m_finished = false;
+        }
+
+        boolean IsFinished() {
+            return m_finished;
+        }
+
+        /**
+         * To get ready to run, on the worker's thread. Nothing by default
+         */
+        void Begin() { }
+
+        /**
+         * To run the task, on the worker's thread
+         * @return The result to tell the callback
+         */
+        abstract T Run();
+
+        /**
+         * To see if a cancelled task got done anyway, i.e. was cancelled too late
+         * @param a_result a T. The result of Run
+         * @return true if the task did what it was given, false otherwise
+         */
+        abstract boolean IsMade(T a_result);
+
+        /**
+         * To cancel the task, stopping the players searching if it is running
+         */
+        synchronized void Cancel() {
+            m_cancelled = true;
+            if (m_started && !m_finished) {
+                m_round.CancelPly();
+            }
+        }
+
+        /*
+        Algorithm:
+            1) Nothing to run if cancelled before starting
+            2) Let the players move again, in case the last task was cancelled
+            3) Pass the search's progress on while running
+            4) Finish before telling the callback, so the caller can give the next task
+            5) Tell the callback if it threw, the worker's thread carries on with the next task
+            6) Otherwise tell the callback the result, unless cancelled before it was made
+         */
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (!m_cancelled) {
+                    m_round.AllowPly();
+                    Begin();
+                    m_started = true;
+                }
+            }
+            if (!m_started) {
+                m_finished = true;
+                m_callback.OnCancelled();
+                return;
+            }
+
+            T result = null;
+            boolean made = false;
+            RuntimeException failure = null;
+            try {
+                m_round.SetProgressListener(m_callback::OnProgress);
+                result = Run();
+                made = IsMade(result);
+            }
+            catch (RuntimeException e) {
+                failure = e;
+            }
+            finally {
+                m_round.SetProgressListener(null);
+                m_finished = true;
+            }
+            if (failure != null) {
+                m_callback.OnFailed(failure);
+                return;
+            }
+
+            boolean cancelled;
+            synchronized (this) {
+                cancelled = m_cancelled && !made;
+            }
+            if (cancelled) {
+                m_callback.OnCancelled();
+            }
+            else {
+                m_callback.OnDone(result);
+            }
+        }
+    }
+
+}
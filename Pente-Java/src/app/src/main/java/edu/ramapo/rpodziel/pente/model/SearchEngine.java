@@ -0,0 +1,536 @@
+//
+//  Search engine - finds the best move with an iterative deepening alpha-beta search
+//
+
+package edu.ramapo.rpodziel.pente.model;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class SearchEngine {
+    /* Class Constants */
+
+    public static final int DEFAULT_MAX_DEPTH = 8;
+    public static final int MIN_DEPTH = 1;
+    public static final int DEFAULT_THREADS = 1;
+    public static final int MAX_THREADS = 64;
+    // Threads a Ponder searches with, it runs on time that isn't the player's and
+    // mustn't take the cores from the opponent's own thinking
+    public static final int PONDER_THREADS = 1;
+
+    // How more than one thread share the search
+    // ROOT_SPLIT splits the root moves of each depth between the threads, see RootSplit
+    // LAZY_SMP runs the whole search on every thread at staggered depths, sharing
+    // what they find through the transposition table
+    public enum ParallelMode {
+        ROOT_SPLIT,
+        LAZY_SMP
+    }
+    public static final ParallelMode DEFAULT_PARALLEL_MODE = ParallelMode.LAZY_SMP;
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    // Acts as 'struct' for the result of a search
+    public static class Result {
+        // Cell to play, Board.NO_CELL if there is no move
+        public int cell;
+        // Score of the move for the player to move, see Evaluator.WIN_VALUE
+        public int score;
+        // Deepest depth fully searched
+        public int depth;
+        public long nodes;
+        public long elapsedMillis;
+
+        public Result() {
+            cell = Board.NO_CELL;
+            score = 0;
+            depth = 0;
+            nodes = 0;
+            elapsedMillis = 0;
+        }
+
+        public Result(final Result a_other) {
+            cell = a_other.cell;
+            score = a_other.score;
+            depth = a_other.depth;
+            nodes = a_other.nodes;
+            elapsedMillis = a_other.elapsedMillis;
+        }
+    }
+
+    // Told of the best move so far each time a search finishes a depth, e.g. to show
+    // the player the computer is thinking. Called on the searching thread
+    public interface ProgressListener {
+        void OnProgress(final Result a_progress);
+    }
+
+
+    /* Private Members */
+
+    private int m_maxDepth;
+    // How long each search may take
+    private TimeControl m_timeControl;
+
+    // Kept between searches, positions from the last move are often seen again
+    // Made when first searching, so changing the size first doesn't allocate twice
+    // Shared by every thread without locking, see TranspositionTable
+    private TranspositionTable m_table;
+    private int m_tableSize;
+
+    // Looks for forced wins through fours and capture threats before searching
+    private final ThreatSolver m_solver;
+    // Moves that stop the opponent's forced win, if they have one
+    private final int[] m_defenses;
+
+    // If moves are ordered before searching, see MoveOrdering. Only turned off to compare
+    private boolean m_moveOrdering;
+    // Nodes the quiescence search may take from each leaf, see Searcher.Quiesce
+    private int m_quiescenceNodes;
+
+    // Threads to search with and how they share the search
+    private int m_threads;
+    private ParallelMode m_parallelMode;
+    private ForkJoinPool m_pool;
+
+    // Set by Stop, which may be called from another thread. The searchers of the
+    // search running, if any, so Stop can reach them
+    private volatile boolean m_stopping;
+    private volatile Searcher[] m_searchers;
+    // Null if nothing listens, never told of a Ponder
+    private volatile ProgressListener m_listener;
+
+
+    /* Constructors */
+
+    public SearchEngine() {
+        m_maxDepth = DEFAULT_MAX_DEPTH;
+        m_timeControl = new TimeControl();
+        m_table = null;
+        m_tableSize = TranspositionTable.DEFAULT_SIZE_MB;
+        m_solver = new ThreatSolver();
+        m_defenses = new int[Board.NUM_CELLS];
+        m_moveOrdering = true;
+        m_quiescenceNodes = Searcher.DEFAULT_QUIESCENCE_NODES;
+        m_threads = DEFAULT_THREADS;
+        m_parallelMode = DEFAULT_PARALLEL_MODE;
+        m_pool = null;
+        m_stopping = false;
+        m_searchers = null;
+        m_listener = null;
+    }
+
+
+    /* Accessors */
+
+    public int GetMaxDepth() {
+        return m_maxDepth;
+    }
+
+    public long GetMoveTime() {
+        return m_timeControl.GetMoveTime();
+    }
+
+    public TimeControl GetTimeControl() {
+        return m_timeControl;
+    }
+
+    public int GetThreads() {
+        return m_threads;
+    }
+
+    public ParallelMode GetParallelMode() {
+        return m_parallelMode;
+    }
+
+    /**
+     * To get the threat solver run before each search, e.g. to change its limits
+     * @return The threat solver, a ThreatSolver object
+     */
+    public ThreatSolver GetThreatSolver() {
+        return m_solver;
+    }
+
+    public boolean IsMoveOrdering() {
+        return m_moveOrdering;
+    }
+
+    public int GetQuiescenceNodes() {
+        return m_quiescenceNodes;
+    }
+
+    /**
+     * To get the transposition table, e.g. for its hit and miss counts
+     * @return The table used by the search, a TranspositionTable object
+     */
+    public TranspositionTable GetTable() {
+        if (m_table == null) {
+            m_table = new TranspositionTable(m_tableSize);
+        }
+        return m_table;
+    }
+
+
+    /* Mutators */
+
+    /**
+     * To set the deepest the search will go
+     * @param a_maxDepth an integer. The depth in plies, at least MIN_DEPTH
+     * @return A ReturnCode representing the success of setting the depth
+     */
+    public Codes.ReturnCode SetMaxDepth(int a_maxDepth) {
+        if (a_maxDepth < MIN_DEPTH || a_maxDepth >= Evaluator.MAX_PLY) {
+            return Codes.ReturnCode.INVALID_SEARCH;
+        }
+        m_maxDepth = a_maxDepth;
+        return Codes.ReturnCode.SUCCESS;
+    }
+
+    /**
+     * To set the time the search may take for each move
+     * @param a_moveTime a long. The time in milliseconds, at least TimeControl.MIN_MOVE_TIME
+     * @return A ReturnCode representing the success of setting the time
+     */
+    public Codes.ReturnCode SetMoveTime(long a_moveTime) {
+        return m_timeControl.SetMoveTime(a_moveTime);
+    }
+
+    /**
+     * To set how long each search may take, e.g. one with a round clock
+     * @param a_timeControl a TimeControl object. Used from now on, not copied
+     * @return A ReturnCode representing the success of setting the time control
+     */
+    public Codes.ReturnCode SetTimeControl(TimeControl a_timeControl) {
+        if (a_timeControl == null) {
+            return Codes.ReturnCode.INVALID_SEARCH;
+        }
+        m_timeControl = a_timeControl;
+        return Codes.ReturnCode.SUCCESS;
+    }
+
+    /**
+     * To set the size of the transposition table, clearing it
+     * @param a_sizeMB an integer. The size in megabytes, between
+     *           TranspositionTable.MIN_SIZE_MB and TranspositionTable.MAX_SIZE_MB
+     * @return A ReturnCode representing the success of setting the size
+     */
+    public Codes.ReturnCode SetTableSize(int a_sizeMB) {
+        if (a_sizeMB < TranspositionTable.MIN_SIZE_MB || a_sizeMB > TranspositionTable.MAX_SIZE_MB) {
+            return Codes.ReturnCode.INVALID_SEARCH;
+        }
+        m_tableSize = a_sizeMB;
+        m_table = null;
+        return Codes.ReturnCode.SUCCESS;
+    }
+
+    /**
+     * To set how many threads search, see SetParallelMode for how
+     * @param a_threads an integer. The number of threads, between 1 and MAX_THREADS
+     * @return A ReturnCode representing the success of setting the threads
+     */
+    public Codes.ReturnCode SetThreads(int a_threads) {
+        if (a_threads < 1 || a_threads > MAX_THREADS) {
+            return Codes.ReturnCode.INVALID_SEARCH;
+        }
+        if (a_threads != m_threads) {
+            Shutdown();
+            m_threads = a_threads;
+        }
+        return Codes.ReturnCode.SUCCESS;
+    }
+
+    /**
+     * To set how the threads share the search, if there is more than one
+     * @param a_parallelMode a ParallelMode, ROOT_SPLIT or LAZY_SMP
+     * @return A ReturnCode representing the success of setting the mode
+     */
+    public Codes.ReturnCode SetParallelMode(ParallelMode a_parallelMode) {
+        if (a_parallelMode == null) {
+            return Codes.ReturnCode.INVALID_SEARCH;
+        }
+        m_parallelMode = a_parallelMode;
+        return Codes.ReturnCode.SUCCESS;
+    }
+
+    /**
+     * To set if moves are ordered before searching, e.g. to measure what ordering saves
+     * @param a_moveOrdering a boolean. true to order moves, false to only search the hash move first
+     */
+    public void SetMoveOrdering(boolean a_moveOrdering) {
+        m_moveOrdering = a_moveOrdering;
+    }
+
+    /**
+     * To set how many nodes the quiescence search may take from each leaf of the search
+     * @param a_nodes an integer. The nodes, 0 to score every leaf as it stands
+     * @return A ReturnCode representing the success of setting the nodes
+     */
+    public Codes.ReturnCode SetQuiescenceNodes(int a_nodes) {
+        if (a_nodes < 0) {
+            return Codes.ReturnCode.INVALID_SEARCH;
+        }
+        m_quiescenceNodes = a_nodes;
+        return Codes.ReturnCode.SUCCESS;
+    }
+
+    /**
+     * To set what is told of each depth a Search finishes, see ProgressListener
+     * @param a_listener a ProgressListener. null to stop telling anything
+     */
+    public void SetProgressListener(ProgressListener a_listener) {
+        m_listener = a_listener;
+    }
+
+    /**
+     * To stop the search threads, they are started again by the next search
+     */
+    public void Shutdown() {
+        if (m_pool != null) {
+            m_pool.shutdown();
+            m_pool = null;
+        }
+    }
+
+
+    /* Main for Debug */
+    public static void main(String[] args) { }
+
+
+    /* Public Utility Functions */
+
+    /**
+     * To search for the best move for a player, within the time control
+     * @param a_board a final Board object. The position to search, not changed
+     * @param a_color a character. The color of the player to find a move for
+     * @return The best move found, a Result object. Result.cell is Board.NO_CELL
+     *     if there is no move to make
+     */
+    /*
+    Algorithm:
+        1) Start timing the move, see TimeControl
+        2) Search until its deadlines, see SearchRest
+        3) Take the time used off the round clock
+     */
+    public Result Search(final Board a_board, char a_color) {
+        m_timeControl.StartMove();
+        Result result = SearchRest(a_board, a_color);
+        result.elapsedMillis = m_timeControl.EndMove();
+        return result;
+    }
+
+    /**
+     * To search for the best move for a player with what is left of a move already
+     *     being timed, e.g. once a ponder that guessed wrong is stopped. The time
+     *     control's move must be started, and is left for the caller to end
+     * @param a_board a final Board object. The position to search, not changed
+     * @param a_color a character. The color of the player to find a move for
+     * @return The best move found, a Result object. Result.cell is Board.NO_CELL
+     *     if there is no move to make, or not even the first depth finished in time
+     */
+    public Result SearchRest(final Board a_board, char a_color) {
+        return Run(a_board, a_color, m_threads, m_timeControl.GetSoftDeadline(),
+                m_timeControl.GetHardDeadline(), m_listener);
+    }
+
+    /**
+     * To search for the best move for a player on time that isn't theirs, e.g.
+     *     while the opponent thinks. The round clock isn't touched, and only
+     *     PONDER_THREADS search
+     * @param a_board a final Board object. The position to search, not changed
+     * @param a_color a character. The color of the player to find a move for
+     * @param a_deadline a long. The System.nanoTime() to stop at, Long.MAX_VALUE
+     *     to search until the max depth or until stopped, see Stop
+     * @return The best move of the last fully searched depth, a Result object.
+     *     Result.cell is Board.NO_CELL if not even the first depth finished
+     */
+    public Result Ponder(final Board a_board, char a_color, long a_deadline) {
+        long start = System.nanoTime();
+        Result result = Run(a_board, a_color, PONDER_THREADS, a_deadline, a_deadline, null);
+        result.elapsedMillis = (System.nanoTime() - start) / NANOS_PER_MILLI;
+        return result;
+    }
+
+    /**
+     * To stop a search running on another thread, e.g. a Ponder no longer needed.
+     *     Searches started after this stop straight away too, until ClearStop
+     */
+    public void Stop() {
+        m_stopping = true;
+        m_solver.Stop();
+        final Searcher[] SEARCHERS = m_searchers;
+        if (SEARCHERS != null) {
+            for (Searcher searcher : SEARCHERS) {
+                searcher.Stop();
+            }
+        }
+    }
+
+    /**
+     * To let searches run again after Stop, only once the stopped search has returned
+     */
+    void ClearStop() {
+        m_stopping = false;
+    }
+
+
+    /* Private Utility Functions */
+
+    /**
+     * To search for the best move for a player until the deadlines
+     * @param a_board a final Board object. The position to search, not changed
+     * @param a_color a character. The color of the player to find a move for
+     * @param a_threads an integer. The threads to search with, at most m_threads
+     * @param a_softDeadline a long. The System.nanoTime() after which no new depth is started
+     * @param a_hardDeadline a long. The System.nanoTime() the search must stop at
+     * @param a_listener a ProgressListener. Told of each depth finished, null if none
+     * @return The best move found, a Result object. Result.cell is Board.NO_CELL
+     *     if there is no move to make
+     */
+    /*
+    Algorithm:
+        1) Search on a copy of the board for each thread, with the player to move set.
+            Nothing is searched if already stopped, see Stop
+        2) If the threat solver finds a forced win, play it without searching. If it
+            finds one for the opponent, only search the moves that stop it
+        3) Let Stop reach the threads, stopping them now if it was already called
+        4) For LAZY_SMP, start the helper threads searching the same position
+        5) Search one ply deeper each iteration, until the max depth or the hard
+            deadline. For ROOT_SPLIT, each depth's root moves are split between the threads
+        6) Keep the best move of the last fully searched depth, telling the listener
+        7) Stop early once a forced win or loss is found, deeper won't change it,
+            or once past the soft deadline, the next depth likely won't finish
+        8) Stop the helpers, the result is from the main search alone
+     */
+    private Result Run(final Board a_board, char a_color, int a_threads, long a_softDeadline,
+                       long a_hardDeadline, ProgressListener a_listener) {
+        final long START = System.nanoTime();
+        Board board = a_board.clone();
+        board.SetNextColor(a_color);
+
+        // Stop sets the flag before stopping the solver, so a Stop is either seen
+        // here or reaches the solver once it has been cleared
+        Result result = new Result();
+        m_solver.ClearStop();
+        if (m_stopping) {
+            return result;
+        }
+
+        // Forcing lines are solved far deeper than the search could reach
+        m_solver.SetDeadline(a_hardDeadline);
+        int win = m_solver.FindWin(board, a_color);
+        result.nodes += m_solver.GetNodes();
+        if (win != Board.NO_CELL) {
+            result.cell = win;
+            result.score = Evaluator.WIN_VALUE - m_solver.GetWinPlies();
+            result.depth = m_solver.GetWinPlies();
+            return result;
+        }
+        final char OTHER_COLOR = (a_color == Player.WHITE_CHAR) ? Player.BLACK_CHAR : Player.WHITE_CHAR;
+        int numDefenses = 0;
+        if (m_solver.FindWin(board, OTHER_COLOR) != Board.NO_CELL) {
+            result.nodes += m_solver.GetNodes();
+            numDefenses = m_solver.FindDefenses(board, a_color, m_defenses);
+        }
+        result.nodes += m_solver.GetNodes();
+
+        // Every thread searches its own copy of the board, all sharing the table
+        Searcher[] searchers = new Searcher[a_threads];
+        for (int thread = 0; thread < a_threads; thread++) {
+            searchers[thread] = new Searcher((thread == 0) ? board : board.clone(), GetTable(), m_moveOrdering);
+            searchers[thread].SetDeadline(a_hardDeadline);
+            searchers[thread].SetQuiescenceNodes(m_quiescenceNodes);
+            searchers[thread].RestrictRootMoves(m_defenses, numDefenses);
+        }
+        m_searchers = searchers;
+        if (m_stopping) {
+            Stop();
+        }
+        boolean rootSplit = a_threads > 1 && m_parallelMode == ParallelMode.ROOT_SPLIT;
+        boolean lazySMP = a_threads > 1 && m_parallelMode == ParallelMode.LAZY_SMP;
+        RootSplit split = rootSplit ? new RootSplit(searchers) : null;
+
+        HelperTask[] helpers = new HelperTask[lazySMP ? a_threads - 1 : 0];
+        for (int helper = 0; helper < helpers.length; helper++) {
+            helpers[helper] = new HelperTask(searchers[helper + 1], helper + 1, m_maxDepth);
+            GetPool().execute(helpers[helper]);
+        }
+
+        int[] best = new int[2];
+        for (int depth = MIN_DEPTH; depth <= m_maxDepth; depth++) {
+            boolean finished = rootSplit ? split.SearchDepth(GetPool(), depth, best)
+                    : searchers[0].SearchRoot(depth, best);
+            if (!finished) {
+                break;
+            }
+            result.cell = best[0];
+            result.score = best[1];
+            result.depth = depth;
+            if (a_listener != null) {
+                Result progress = new Result(result);
+                for (Searcher searcher : searchers) {
+                    progress.nodes += searcher.GetNodes();
+                }
+                progress.elapsedMillis = (System.nanoTime() - START) / NANOS_PER_MILLI;
+                a_listener.OnProgress(progress);
+            }
+
+            if (Math.abs(result.score) >= Evaluator.WIN_VALUE - Evaluator.MAX_PLY
+                    || System.nanoTime() > a_softDeadline) {
+                break;
+            }
+        }
+
+        for (HelperTask helper : helpers) {
+            helper.Stop();
+        }
+        for (HelperTask helper : helpers) {
+            helper.join();
+        }
+
+        for (Searcher searcher : searchers) {
+            result.nodes += searcher.GetNodes();
+        }
+        m_searchers = null;
+        return result;
+    }
+
+    /**
+     * To get the pool the search threads run on, starting it if needed
+     * @return The pool, a ForkJoinPool of m_threads workers
+     */
+    private ForkJoinPool GetPool() {
+        if (m_pool == null) {
+            m_pool = new ForkJoinPool(m_threads);
+        }
+        return m_pool;
+    }
+
+    // A Lazy SMP helper - searches the same position as the main thread until stopped,
+    // filling the shared table with what the main search will need next
+    private static final class HelperTask extends RecursiveAction {
+        private final Searcher m_searcher;
+        private final int m_helper;
+        private final int m_maxDepth;
+
+        HelperTask(Searcher a_searcher, int a_helper, int a_maxDepth) {
+            m_searcher = a_searcher;
+            m_helper = a_helper;
+            m_maxDepth = a_maxDepth;
+        }
+
+        void Stop() {
+            m_searcher.Stop();
+        }
+
+        @Override
+        protected void compute() {
+            // Odd helpers start a depth ahead, so the threads don't all search the same depth
+            int[] best = new int[2];
+            for (int depth = MIN_DEPTH + (m_helper & 1); depth <= m_maxDepth; depth++) {
+                if (!m_searcher.SearchRoot(depth, best)) {
+                    return;
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,472 @@
+//
+//  Negamax alpha-beta search over one board - owned by a single thread
+//
+
+package edu.ramapo.rpodziel.pente.model;
+
+final class Searcher {
+    /* Class Constants */
+
+    // Larger than any score the search can return
+    static final int INFINITY = Evaluator.WIN_VALUE + 1;
+
+    // Nodes searched between checks of the clock, must be a power of 2 minus 1
+    private static final int CHECK_TIME_MASK = 1023;
+
+    // Nodes each quiescence search may take from a leaf before the rest are scored
+    // as they stand, so a long capture exchange can't hold up the search
+    static final int DEFAULT_QUIESCENCE_NODES = 64;
+
+
+    /* Private Members */
+
+    // The board searched on, moves are made and undone on it
+    private final Board m_board;
+    // Positions already searched, so transpositions aren't searched again
+    private final TranspositionTable m_table;
+    // Orders the moves of each position, null to only search the hash move first
+    private final MoveOrdering m_ordering;
+
+    // Candidate moves at each ply, so searching allocates nothing
+    private final int[][] m_moves;
+    private final int[] m_numMoves;
+
+    // Root moves, ordered best first after each iteration
+    private final int[] m_rootMoves;
+    private int m_numRootMoves;
+
+    private long m_nodes;
+    // Quiescence nodes each leaf may search, and those left for the current leaf
+    private int m_quiescenceNodes;
+    private int m_quiescenceLeft;
+    private long m_deadline;
+    private boolean m_stopped;
+    // Set by another thread to stop the search, e.g. a helper once the main search is done
+    private volatile boolean m_abort;
+
+
+    /* Constructors */
+
+    /**
+     * @param a_board a Board object. The board to search, owned by the searcher from now on
+     * @param a_table a TranspositionTable object. The table to look up and store positions in
+     * @param a_ordering a boolean. If moves are ordered, see MoveOrdering
+     */
+    Searcher(Board a_board, TranspositionTable a_table, boolean a_ordering) {
+        m_board = a_board;
+        m_table = a_table;
+        m_ordering = a_ordering ? new MoveOrdering() : null;
+        m_moves = new int[Evaluator.MAX_PLY][Board.NUM_CELLS];
+        m_numMoves = new int[Evaluator.MAX_PLY];
+        m_rootMoves = new int[Board.NUM_CELLS];
+        m_numRootMoves = m_board.GetCandidateCells(m_rootMoves);
+        if (m_ordering != null) {
+            m_ordering.Order(m_board, m_rootMoves, m_numRootMoves, Board.NO_CELL, 0);
+        }
+        m_nodes = 0;
+        m_quiescenceNodes = DEFAULT_QUIESCENCE_NODES;
+        m_quiescenceLeft = 0;
+        m_deadline = Long.MAX_VALUE;
+        m_stopped = false;
+        m_abort = false;
+    }
+
+
+    /* Accessors */
+
+    long GetNodes() {
+        return m_nodes;
+    }
+
+    boolean IsStopped() {
+        return m_stopped;
+    }
+
+    int GetNumRootMoves() {
+        return m_numRootMoves;
+    }
+
+
+    /* Mutators */
+
+    /**
+     * To set when the search must stop
+     * @param a_deadline a long. The System.nanoTime() to stop at
+     */
+    void SetDeadline(long a_deadline) {
+        m_deadline = a_deadline;
+    }
+
+    /**
+     * To set how many nodes the quiescence search may take from each leaf
+     * @param a_nodes an integer. The nodes, 0 to score every leaf as it stands
+     */
+    void SetQuiescenceNodes(int a_nodes) {
+        m_quiescenceNodes = a_nodes;
+    }
+
+    /**
+     * To stop the search from another thread, it stops at the next node
+     */
+    void Stop() {
+        m_abort = true;
+    }
+
+    /**
+     * To only search some of the root moves, e.g. the ones that stop a forced win
+     * @param a_cells a final integer array. The moves to keep
+     * @param a_numCells an integer. The number of moves to keep, 0 to keep them all
+     */
+    void RestrictRootMoves(final int[] a_cells, int a_numCells) {
+        int count = 0;
+        for (int index = 0; index < m_numRootMoves; index++) {
+            for (int cell = 0; cell < a_numCells; cell++) {
+                if (a_cells[cell] == m_rootMoves[index]) {
+                    m_rootMoves[count++] = m_rootMoves[index];
+                    break;
+                }
+            }
+        }
+        // None of them are root moves, better to search every move than none
+        if (count > 0) {
+            m_numRootMoves = count;
+        }
+    }
+
+    /**
+     * To search every root move to a depth, moving the best to the front
+     * @param a_depth an integer. The depth to search to, in plies
+     * @param a_best an integer array of 2. Filled with the best cell and its score
+     * @return true if the depth was searched completely, false if stopped
+     */
+    /*
+    Algorithm:
+        1) Search each root move with a window of the best score so far
+        2) Move the best root move to the front, so the next depth searches it first
+     */
+    boolean SearchRoot(int a_depth, int[] a_best) {
+        if (m_numRootMoves == 0) {
+            return false;
+        }
+        final char COLOR = m_board.GetNextColor();
+
+        int alpha = -INFINITY;
+        int bestIndex = 0;
+        for (int index = 0; index < m_numRootMoves; index++) {
+            int score = SearchMove(COLOR, m_rootMoves[index], a_depth, 0, alpha, INFINITY);
+            if (m_stopped) {
+                return false;
+            }
+            if (score > alpha) {
+                alpha = score;
+                bestIndex = index;
+            }
+        }
+
+        // Best move first for the next depth, the rest keep their order
+        int bestCell = m_rootMoves[bestIndex];
+        System.arraycopy(m_rootMoves, 0, m_rootMoves, 1, bestIndex);
+        m_rootMoves[0] = bestCell;
+
+        a_best[0] = bestCell;
+        a_best[1] = alpha;
+        return true;
+    }
+
+    /**
+     * To search a single root move, e.g. when the root moves are split between threads
+     * @param a_cell an integer. The root move to search
+     * @param a_depth an integer. The depth to search to, in plies
+     * @param a_alpha an integer. The score the player to move already has elsewhere
+     * @return The score of the move for the player to move, an integer. Only
+     *     exact if above a_alpha, not valid if the search was stopped
+     */
+    int SearchRootMove(int a_cell, int a_depth, int a_alpha) {
+        return SearchMove(m_board.GetNextColor(), a_cell, a_depth, 0, a_alpha, INFINITY);
+    }
+
+    /**
+     * To get the root moves, in the order they will be searched
+     * @param a_moves an integer array of Board.NUM_CELLS. Filled with the root moves
+     * @return The number of root moves, an integer
+     */
+    int GetRootMoves(int[] a_moves) {
+        System.arraycopy(m_rootMoves, 0, a_moves, 0, m_numRootMoves);
+        return m_numRootMoves;
+    }
+
+
+    /* Private Utility Functions */
+
+    /**
+     * To make a move and score it for the player who made it
+     * @param a_color a character. The color of the player making the move
+     * @param a_cell an integer. The cell to place on
+     * @param a_depth an integer. The depth left, counting this move
+     * @param a_ply an integer. The plies from the root, before this move
+     * @param a_alpha an integer. The score the mover already has elsewhere
+     * @param a_beta an integer. The score the opponent already has elsewhere
+     * @return The score of the move for the mover, an integer
+     */
+    private int SearchMove(char a_color, int a_cell, int a_depth, int a_ply, int a_alpha, int a_beta) {
+        m_board.PlaceStone(a_color, a_cell);
+        int score;
+        // Sooner wins score higher, so the shortest win is taken
+        if (m_board.IsWinningMove()) {
+            score = Evaluator.WIN_VALUE - (a_ply + 1);
+        }
+        else {
+            score = -Negamax(a_depth - 1, a_ply + 1, -a_beta, -a_alpha);
+        }
+        m_board.UndoMove();
+        return score;
+    }
+
+    /**
+     * To search a position to a depth, scoring it for the player to move
+     * @param a_depth an integer. The depth left to search, in plies
+     * @param a_ply an integer. The plies from the root
+     * @param a_alpha an integer. The lowest score the player to move can already get
+     * @param a_beta an integer. The highest score the opponent allows
+     * @return The score of the position for the player to move, an integer
+     */
+    /*
+    Algorithm:
+        1) Stop if out of time, search only the noisy moves if out of depth, see Quiesce
+        2) Use the stored score if the position was already searched deep enough
+        3) Search each candidate move, the stored best move first then as ranked
+            by MoveOrdering, keeping the best score
+        4) Stop searching moves once the opponent would avoid this position,
+            remembering the move that caused it for ordering
+        5) Store the score, and if it is exact or a bound, for next time
+     */
+    private int Negamax(int a_depth, int a_ply, int a_alpha, int a_beta) {
+        m_nodes++;
+        if (m_abort || ((m_nodes & CHECK_TIME_MASK) == 0 && System.nanoTime() > m_deadline)) {
+            m_stopped = true;
+        }
+        if (m_stopped) {
+            return 0;
+        }
+        if (a_ply >= Evaluator.MAX_PLY) {
+            return Evaluator.Evaluate(m_board);
+        }
+        if (a_depth <= 0) {
+            m_quiescenceLeft = m_quiescenceNodes;
+            return Quiesce(a_ply, a_alpha, a_beta);
+        }
+
+        // Searched before, the stored score may be enough or at least its best move
+        final long KEY = m_board.GetZobristKey();
+        long entry = m_table.Probe(KEY);
+        int hashCell = Board.NO_CELL;
+        if (entry != TranspositionTable.NO_ENTRY) {
+            hashCell = TranspositionTable.GetCell(entry);
+            if (TranspositionTable.GetDepth(entry) >= a_depth) {
+                int score = FromTable(TranspositionTable.GetScore(entry), a_ply);
+                int bound = TranspositionTable.GetBound(entry);
+                if (bound == TranspositionTable.BOUND_EXACT
+                        || (bound == TranspositionTable.BOUND_LOWER && score >= a_beta)
+                        || (bound == TranspositionTable.BOUND_UPPER && score <= a_alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        final int[] MOVES = m_moves[a_ply];
+        m_numMoves[a_ply] = m_board.GetCandidateCells(MOVES);
+        // No moves left, the board is full
+        if (m_numMoves[a_ply] == 0) {
+            return 0;
+        }
+        if (m_ordering != null) {
+            m_ordering.Order(m_board, MOVES, m_numMoves[a_ply], hashCell, a_ply);
+        }
+        else {
+            MoveToFront(MOVES, m_numMoves[a_ply], hashCell);
+        }
+
+        final char COLOR = m_board.GetNextColor();
+        final int ALPHA = a_alpha;
+        int best = -INFINITY;
+        int bestCell = Board.NO_CELL;
+        for (int index = 0; index < m_numMoves[a_ply]; index++) {
+            int score = SearchMove(COLOR, MOVES[index], a_depth, a_ply, a_alpha, a_beta);
+            if (m_stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                bestCell = MOVES[index];
+                if (score > a_alpha) {
+                    a_alpha = score;
+                }
+                if (a_alpha >= a_beta) {
+                    if (m_ordering != null) {
+                        m_ordering.Update(COLOR, MOVES, index, a_depth, a_ply);
+                    }
+                    break;
+                }
+            }
+        }
+
+        int bound;
+        if (best <= ALPHA) { bound = TranspositionTable.BOUND_UPPER; }
+        else if (best >= a_beta) { bound = TranspositionTable.BOUND_LOWER; }
+        else { bound = TranspositionTable.BOUND_EXACT; }
+        m_table.Store(KEY, ToTable(best, a_ply), a_depth, bound, bestCell);
+
+        return best;
+    }
+
+    /**
+     * To search only the moves that change the position sharply, until it is quiet,
+     *     scoring it for the player to move. A capture frees intersections all along
+     *     its lines, so a position in the middle of an exchange can't be scored as it stands
+     * @param a_ply an integer. The plies from the root
+     * @param a_alpha an integer. The lowest score the player to move can already get
+     * @param a_beta an integer. The highest score the opponent allows
+     * @return The score of the position for the player to move, an integer
+     */
+    /*
+    Algorithm:
+        1) Score the position as it stands if out of time, plies or quiescence nodes
+        2) Look at each candidate move. If one wins for us, the position is won
+        3) If the opponent could win next move, we may not stand pat, only moves on
+            their winning cells or our captures can save us
+        4) Otherwise the player may stand pat, i.e. take the score as it stands, and
+            only captures, fours and capture threats are searched to try and beat it
+        5) Search the noisy moves best first, keeping the best score
+     */
+    private int Quiesce(int a_ply, int a_alpha, int a_beta) {
+        m_nodes++;
+        if (m_abort || ((m_nodes & CHECK_TIME_MASK) == 0 && System.nanoTime() > m_deadline)) {
+            m_stopped = true;
+        }
+        if (m_stopped) {
+            return 0;
+        }
+        int standPat = Evaluator.Evaluate(m_board);
+        if (m_quiescenceLeft <= 0 || a_ply >= Evaluator.MAX_PLY) {
+            return standPat;
+        }
+        m_quiescenceLeft--;
+
+        final int[] MOVES = m_moves[a_ply];
+        final int NUM_CANDIDATES = m_board.GetCandidateCells(MOVES);
+        if (NUM_CANDIDATES == 0) {
+            return 0;
+        }
+
+        final byte STONE = Board.ToStone(m_board.GetNextColor());
+        final byte OTHER_STONE = Board.OtherStone(STONE);
+        final int OUR_PAIRS = m_board.GetTotalCapturedPairs(Board.ToPiece(STONE));
+        final int THEIR_PAIRS = m_board.GetTotalCapturedPairs(Board.ToPiece(OTHER_STONE));
+        boolean mustDefend = false;
+        for (int index = 0; index < NUM_CANDIDATES; index++) {
+            final int CELL = MOVES[index];
+            if (m_board.GetLineThrough(CELL, STONE) >= Board.WIN_SCORE
+                    || OUR_PAIRS + m_board.GetCapturesAt(CELL, STONE) >= Board.CAPTURE_WIN) {
+                return Evaluator.WIN_VALUE - (a_ply + 1);
+            }
+            mustDefend |= m_board.GetLineThrough(CELL, OTHER_STONE) >= Board.WIN_SCORE
+                    || THEIR_PAIRS + m_board.GetCapturesAt(CELL, OTHER_STONE) >= Board.CAPTURE_WIN;
+        }
+
+        int best = -INFINITY;
+        if (!mustDefend) {
+            best = standPat;
+            if (best >= a_beta) {
+                return best;
+            }
+            a_alpha = Math.max(a_alpha, best);
+        }
+
+        // Keep only the noisy moves, in place
+        int numMoves = 0;
+        for (int index = 0; index < NUM_CANDIDATES; index++) {
+            final int CELL = MOVES[index];
+            boolean noisy = m_board.GetCapturesAt(CELL, STONE) > 0;
+            if (mustDefend) {
+                noisy |= m_board.GetLineThrough(CELL, OTHER_STONE) >= Board.WIN_SCORE
+                        || THEIR_PAIRS + m_board.GetCapturesAt(CELL, OTHER_STONE) >= Board.CAPTURE_WIN;
+            }
+            else {
+                noisy |= m_board.MakesFour(CELL, STONE) || m_board.ThreatensCapture(CELL, STONE);
+            }
+            if (noisy) {
+                MOVES[numMoves++] = CELL;
+            }
+        }
+        // Nothing saves us, the opponent wins next move
+        if (numMoves == 0) {
+            return (best == -INFINITY) ? -(Evaluator.WIN_VALUE - (a_ply + 2)) : best;
+        }
+        if (m_ordering != null) {
+            m_ordering.Order(m_board, MOVES, numMoves, Board.NO_CELL, a_ply);
+        }
+
+        final char COLOR = m_board.GetNextColor();
+        for (int index = 0; index < numMoves; index++) {
+            m_board.PlaceStone(COLOR, MOVES[index]);
+            int score = m_board.IsWinningMove() ? Evaluator.WIN_VALUE - (a_ply + 1)
+                    : -Quiesce(a_ply + 1, -a_beta, -a_alpha);
+            m_board.UndoMove();
+            if (m_stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                if (score > a_alpha) {
+                    a_alpha = score;
+                }
+                if (a_alpha >= a_beta) {
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * To move a cell to the front of the moves, if it is one of them
+     * @param a_moves an integer array. The moves
+     * @param a_numMoves an integer. The number of moves
+     * @param a_cell an integer. The cell to move to the front, may be Board.NO_CELL
+     */
+    private static void MoveToFront(int[] a_moves, int a_numMoves, int a_cell) {
+        for (int index = 0; index < a_numMoves; index++) {
+            if (a_moves[index] == a_cell) {
+                System.arraycopy(a_moves, 0, a_moves, 1, index);
+                a_moves[0] = a_cell;
+                return;
+            }
+        }
+    }
+
+    /**
+     * To convert a score to store in the table. Win scores count plies from
+     *     the root, the table needs them counted from the position itself.
+     * @param a_score an integer. The score, counted from the root
+     * @param a_ply an integer. The plies from the root to the position
+     * @return The score to store, an integer
+     */
+    private static int ToTable(int a_score, int a_ply) {
+        if (a_score >= Evaluator.WIN_VALUE - Evaluator.MAX_PLY) { return a_score + a_ply; }
+        if (a_score <= -Evaluator.WIN_VALUE + Evaluator.MAX_PLY) { return a_score - a_ply; }
+        return a_score;
+    }
+
+    /**
+     * To convert a score read from the table back to one counted from the root
+     * @param a_score an integer. The score from the table
+     * @param a_ply an integer. The plies from the root to the position
+     * @return The score counted from the root, an integer
+     */
+    private static int FromTable(int a_score, int a_ply) {
+        if (a_score >= Evaluator.WIN_VALUE - Evaluator.MAX_PLY) { return a_score - a_ply; }
+        if (a_score <= -Evaluator.WIN_VALUE + Evaluator.MAX_PLY) { return a_score + a_ply; }
+        return a_score;
+    }
+
+}
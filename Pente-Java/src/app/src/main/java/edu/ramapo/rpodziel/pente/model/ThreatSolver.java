@@ -0,0 +1,373 @@
+//
+//  Threat solver - proves forced wins made only of fours and capture threats
+//
+
+package edu.ramapo.rpodziel.pente.model;
+
+public final class ThreatSolver {
+    /* Class Constants */
+
+    // Most forcing moves in a row the attacker may make, each answered by the defender
+    public static final int DEFAULT_MAX_THREATS = 10;
+    // Positions looked at before giving up, keeps a failed solve to a few milliseconds
+    public static final int DEFAULT_NODE_LIMIT = 20000;
+
+    // Nodes between checks of the clock, must be a power of 2 minus 1
+    private static final int CHECK_TIME_MASK = 255;
+
+
+    /* Private Members */
+
+    // The board solved on, moves are made and undone on it
+    private Board m_board;
+    private int m_maxThreats;
+    private int m_nodeLimit;
+    private long m_deadline;
+
+    // Moves at each ply, so solving allocates nothing
+    private final int[][] m_moves;
+    private final int[] m_threats;
+
+    private long m_nodes;
+    private boolean m_aborted;
+    // Set by Stop, which may be called from another thread
+    private volatile boolean m_stopping;
+    // First move and length in plies of the last win found
+    private int m_winCell;
+    private int m_winPlies;
+
+
+    /* Constructors */
+
+    public ThreatSolver() {
+        m_board = null;
+        m_maxThreats = DEFAULT_MAX_THREATS;
+        m_nodeLimit = DEFAULT_NODE_LIMIT;
+        m_deadline = Long.MAX_VALUE;
+        m_moves = new int[2 * DEFAULT_MAX_THREATS + 2][Board.NUM_CELLS];
+        m_threats = new int[Board.NUM_CELLS];
+        m_nodes = 0;
+        m_aborted = false;
+        m_stopping = false;
+        m_winCell = Board.NO_CELL;
+        m_winPlies = 0;
+    }
+
+
+    /* Accessors */
+
+    public long GetNodes() {
+        return m_nodes;
+    }
+
+    /**
+     * To get how long the last win found takes
+     * @return The plies until the attacker wins, counting both players, an integer
+     */
+    public int GetWinPlies() {
+        return m_winPlies;
+    }
+
+    /**
+     * To get if the last solve ran out of nodes or time, so a win may have been missed
+     * @return true if the solve gave up, false if it looked at every forcing line
+     */
+    public boolean IsAborted() {
+        return m_aborted;
+    }
+
+
+    /* Mutators */
+
+    /**
+     * To set the most forcing moves in a row the solver looks for
+     * @param a_maxThreats an integer. Between 1 and DEFAULT_MAX_THREATS
+     * @return A ReturnCode representing the success of setting the threats
+     */
+    public Codes.ReturnCode SetMaxThreats(int a_maxThreats) {
+        if (a_maxThreats < 1 || a_maxThreats > DEFAULT_MAX_THREATS) {
+            return Codes.ReturnCode.INVALID_SEARCH;
+        }
+        m_maxThreats = a_maxThreats;
+        return Codes.ReturnCode.SUCCESS;
+    }
+
+    /**
+     * To set how many positions a solve may look at
+     * @param a_nodeLimit an integer. Must be positive
+     * @return A ReturnCode representing the success of setting the limit
+     */
+    public Codes.ReturnCode SetNodeLimit(int a_nodeLimit) {
+        if (a_nodeLimit <= 0) {
+            return Codes.ReturnCode.INVALID_SEARCH;
+        }
+        m_nodeLimit = a_nodeLimit;
+        return Codes.ReturnCode.SUCCESS;
+    }
+
+    /**
+     * To set when solving must stop, e.g. the hard deadline of the move
+     * @param a_deadline a long. The System.nanoTime() to stop at
+     */
+    public void SetDeadline(long a_deadline) {
+        m_deadline = a_deadline;
+    }
+
+    /**
+     * To stop solving from another thread, it gives up at the next node.
+     *     Solves started after this give up straight away too, until ClearStop
+     */
+    public void Stop() {
+        m_stopping = true;
+    }
+
+    /**
+     * To let solves run again after Stop
+     */
+    public void ClearStop() {
+        m_stopping = false;
+    }
+
+
+    /* Main for Debug */
+    public static void main(String[] args) { }
+
+
+    /* Public Utility Functions */
+
+    /**
+     * To find a forced win for a player, made only of moves the opponent must answer
+     * @param a_board a final Board object. The position to solve, not changed
+     * @param a_color a character. The color of the player to find a win for, moving next
+     * @return The first move of the shortest win found, Board.NO_CELL if there is none
+     */
+    /*
+    Algorithm:
+        1) Solve on a copy of the board, with the attacker to move
+        2) Look for a win in one forcing move, then two, and so on up to the max,
+            so the shortest win is found
+     */
+    public int FindWin(final Board a_board, char a_color) {
+        m_board = a_board.clone();
+        m_board.SetNextColor(a_color);
+        m_nodes = 0;
+        m_aborted = false;
+        return Solve();
+    }
+
+    /**
+     * To find the moves that stop the opponent's forced win
+     * @param a_board a final Board object. The position, not changed
+     * @param a_color a character. The color of the defending player, moving next
+     * @param a_defenses an integer array of Board.NUM_CELLS. Filled with the moves that stop it
+     * @return The number of moves that stop every forced win found, an integer.
+     *     0 if none do or the solver gave up, i.e. the moves can't be narrowed down
+     */
+    /*
+    Algorithm:
+        1) For each of the defender's candidate moves, play it
+        2) Keep the move if the opponent has no forced win afterwards
+        3) Give up if out of nodes, a defense found then can't be trusted
+     */
+    public int FindDefenses(final Board a_board, char a_color, int[] a_defenses) {
+        m_board = a_board.clone();
+        m_board.SetNextColor(a_color);
+        m_nodes = 0;
+        m_aborted = false;
+
+        // Defenses are kept in place of the moves, never ahead of the move looked at
+        final int NUM_MOVES = m_board.GetCandidateCells(a_defenses);
+        int count = 0;
+        for (int index = 0; index < NUM_MOVES; index++) {
+            final int CELL = a_defenses[index];
+            m_board.PlaceStone(a_color, CELL);
+            boolean stopped = m_board.IsWinningMove() || Solve() == Board.NO_CELL;
+            m_board.UndoMove();
+            if (m_aborted) {
+                return 0;
+            }
+            if (stopped) {
+                a_defenses[count++] = CELL;
+            }
+        }
+        return count;
+    }
+
+
+    /* Private Utility Functions */
+
+    /**
+     * To find a forced win for the player to move on m_board
+     * @return The first move of the shortest win found, Board.NO_CELL if there is none
+     */
+    private int Solve() {
+        m_winCell = Board.NO_CELL;
+        m_winPlies = 0;
+        for (int threats = 0; threats <= m_maxThreats && !m_aborted; threats++) {
+            if (Attack(threats, 0)) {
+                m_winPlies = 2 * threats + 1;
+                return m_winCell;
+            }
+        }
+        return Board.NO_CELL;
+    }
+
+    /**
+     * To check if the player to move can force a win
+     * @param a_threats an integer. The forcing moves the attacker may still make
+     * @param a_ply an integer. The plies from the start of the solve
+     * @return true if the attacker wins, false if not found
+     */
+    /*
+    Algorithm:
+        1) Win if a move makes five in a row or reaches CAPTURE_WIN pairs
+        2) If the defender could win next move, the attacker may only play the
+            moves that stop it, and they must still force
+        3) Try each forcing move: one that makes a four, or one that threatens a
+            capture when a capture would win. Win if every answer to it loses
+     */
+    private boolean Attack(int a_threats, int a_ply) {
+        if (CountNode()) {
+            return false;
+        }
+        final char COLOR = m_board.GetNextColor();
+        final byte STONE = Board.ToStone(COLOR);
+        final byte OTHER_STONE = Board.OtherStone(STONE);
+
+        final int[] MOVES = m_moves[a_ply];
+        final int NUM_MOVES = m_board.GetCandidateCells(MOVES);
+        int win = FindWinningCell(STONE, MOVES, NUM_MOVES);
+        if (win != Board.NO_CELL) {
+            if (a_ply == 0) {
+                m_winCell = win;
+            }
+            return true;
+        }
+        if (a_threats == 0) {
+            return false;
+        }
+
+        final boolean MUST_BLOCK = FindWinningCell(OTHER_STONE, MOVES, NUM_MOVES) != Board.NO_CELL;
+        final boolean CAPTURE_THREATS =
+                m_board.GetTotalCapturedPairs(COLOR) == Board.CAPTURE_WIN - 1;
+        for (int index = 0; index < NUM_MOVES; index++) {
+            final int CELL = MOVES[index];
+            if (!m_board.MakesFour(CELL, STONE)
+                    && !(CAPTURE_THREATS && m_board.ThreatensCapture(CELL, STONE))) {
+                continue;
+            }
+
+            m_board.PlaceStone(COLOR, CELL);
+            // A block must leave the defender without a win, e.g. not just one of two
+            boolean forced = !MUST_BLOCK || FindWinningCell(OTHER_STONE) == Board.NO_CELL;
+            boolean won = forced && Defend(a_threats - 1, a_ply + 1);
+            m_board.UndoMove();
+
+            if (won) {
+                if (a_ply == 0) {
+                    m_winCell = CELL;
+                }
+                return true;
+            }
+            if (m_aborted) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * To check if every answer to the attacker's threat still loses
+     * @param a_threats an integer. The forcing moves the attacker may still make
+     * @param a_ply an integer. The plies from the start of the solve
+     * @return true if the attacker wins whatever the defender plays, false otherwise
+     */
+    /*
+    Algorithm:
+        1) The defender wins first if they can win now
+        2) The only answers are playing where the attacker would win, or capturing,
+            which may take stones out of the attacker's four
+        3) The attacker wins if it still forces a win after every answer
+     */
+    private boolean Defend(int a_threats, int a_ply) {
+        if (CountNode()) {
+            return false;
+        }
+        final char COLOR = m_board.GetNextColor();
+        final byte STONE = Board.ToStone(COLOR);
+        final byte OTHER_STONE = Board.OtherStone(STONE);
+
+        final int[] MOVES = m_moves[a_ply];
+        final int NUM_MOVES = m_board.GetCandidateCells(MOVES);
+        if (FindWinningCell(STONE, MOVES, NUM_MOVES) != Board.NO_CELL) {
+            return false;
+        }
+
+        for (int index = 0; index < NUM_MOVES; index++) {
+            final int CELL = MOVES[index];
+            if (!IsWinningCell(CELL, OTHER_STONE) && m_board.GetCapturesAt(CELL, STONE) == 0) {
+                continue;
+            }
+
+            m_board.PlaceStone(COLOR, CELL);
+            boolean lost = !m_board.IsWinningMove() && Attack(a_threats, a_ply + 1);
+            m_board.UndoMove();
+            if (!lost) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * To find a cell where a player would win by placing, among some cells
+     * @param a_stone a byte. The stone code of the player
+     * @param a_cells a final integer array. The cells to look at
+     * @param a_numCells an integer. The number of cells
+     * @return The first winning cell, Board.NO_CELL if there is none
+     */
+    private int FindWinningCell(byte a_stone, final int[] a_cells, int a_numCells) {
+        for (int index = 0; index < a_numCells; index++) {
+            if (IsWinningCell(a_cells[index], a_stone)) {
+                return a_cells[index];
+            }
+        }
+        return Board.NO_CELL;
+    }
+
+    /**
+     * To find a cell where a player would win by placing, among every candidate cell
+     * @param a_stone a byte. The stone code of the player
+     * @return The first winning cell, Board.NO_CELL if there is none
+     */
+    private int FindWinningCell(byte a_stone) {
+        int numCells = m_board.GetCandidateCells(m_threats);
+        return FindWinningCell(a_stone, m_threats, numCells);
+    }
+
+    /**
+     * To check if a player would win by placing on a cell
+     * @param a_cell an integer. The empty cell
+     * @param a_stone a byte. The stone code of the player
+     * @return true if it makes five in a row or captures enough pairs, false otherwise
+     */
+    private boolean IsWinningCell(int a_cell, byte a_stone) {
+        return m_board.GetLineThrough(a_cell, a_stone) >= Board.WIN_SCORE
+                || m_board.GetTotalCapturedPairs(Board.ToPiece(a_stone))
+                    + m_board.GetCapturesAt(a_cell, a_stone) >= Board.CAPTURE_WIN;
+    }
+
+    /**
+     * To count a node, giving up if out of nodes or time, or if stopped
+     * @return true if the solve must stop, false otherwise
+     */
+    private boolean CountNode() {
+        m_nodes++;
+        if (m_nodes > m_nodeLimit
+                || m_stopping || ((m_nodes & CHECK_TIME_MASK) == 0 && System.nanoTime() > m_deadline)) {
+            m_aborted = true;
+        }
+        return m_aborted;
+    }
+
+}
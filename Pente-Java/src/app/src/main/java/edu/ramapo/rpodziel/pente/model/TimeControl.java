@@ -0,0 +1,189 @@
+//
+//  Time control - how long each search may take, from a per-move budget and a round clock
+//
+
+package edu.ramapo.rpodziel.pente.model;
+
+import androidx.annotation.NonNull;
+
+import java.io.Serializable;
+
+public class TimeControl implements Serializable, Cloneable {
+    /* Class Constants */
+
+    public static final long DEFAULT_MOVE_TIME = 2000;
+    // The round clock is off, only the per-move budget limits a move
+    public static final long NO_CLOCK = 0;
+    public static final long DEFAULT_ROUND_TIME = NO_CLOCK;
+
+    // Least time a move is given, even when the clock has nearly run out
+    public static final long MIN_MOVE_TIME = 10;
+    // Moves the rest of the clock is assumed to be shared between
+    static final int MOVES_TO_GO = 20;
+    // Taken off the budget for stopping the threads and returning after the hard deadline
+    static final long STOP_MARGIN = 5;
+    // Part of the hard deadline after which no new depth is started, in percent
+    static final int SOFT_PERCENT = 50;
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+    private static final long serialVersionUID = 42L;
+
+
+    /* Private Members */
+
+    // Time allowed for each move, in milliseconds
+    private long m_moveTime;
+    // Time allowed for every move of a round together, NO_CLOCK if unlimited
+    private long m_roundTime;
+    private long m_remaining;
+
+    // Of the move being searched, as System.nanoTime() values
+    private transient long m_start;
+    private transient long m_softDeadline;
+    private transient long m_hardDeadline;
+
+
+    /* Constructors */
+
+    public TimeControl() {
+        m_moveTime = DEFAULT_MOVE_TIME;
+        m_roundTime = DEFAULT_ROUND_TIME;
+        m_remaining = DEFAULT_ROUND_TIME;
+        m_start = 0;
+        m_softDeadline = Long.MAX_VALUE;
+        m_hardDeadline = Long.MAX_VALUE;
+    }
+
+
+    /* Accessors */
+
+    public long GetMoveTime() {
+        return m_moveTime;
+    }
+
+    public long GetRoundTime() {
+        return m_roundTime;
+    }
+
+    /**
+     * To get how much of the round clock is left
+     * @return The time left in milliseconds, a long. Meaningless if there is no clock
+     */
+    public long GetRemaining() {
+        return m_remaining;
+    }
+
+    public boolean HasClock() {
+        return m_roundTime != NO_CLOCK;
+    }
+
+    /**
+     * To get when a search should not start another depth, it likely won't finish
+     * @return The System.nanoTime() of the soft deadline of the current move, a long
+     */
+    public long GetSoftDeadline() {
+        return m_softDeadline;
+    }
+
+    /**
+     * To get when a search must stop, even in the middle of a depth
+     * @return The System.nanoTime() of the hard deadline of the current move, a long
+     */
+    public long GetHardDeadline() {
+        return m_hardDeadline;
+    }
+
+
+    /* Mutators */
+
+    /**
+     * To set the time each move may take
+     * @param a_moveTime a long. The time in milliseconds, at least MIN_MOVE_TIME
+     * @return A ReturnCode representing the success of setting the time
+     */
+    public Codes.ReturnCode SetMoveTime(long a_moveTime) {
+        if (a_moveTime < MIN_MOVE_TIME) {
+            return Codes.ReturnCode.INVALID_SEARCH;
+        }
+        m_moveTime = a_moveTime;
+        return Codes.ReturnCode.SUCCESS;
+    }
+
+    /**
+     * To set the time every move of a round may take together, restarting the clock
+     * @param a_roundTime a long. The time in milliseconds, NO_CLOCK to turn the clock off
+     * @return A ReturnCode representing the success of setting the time
+     */
+    public Codes.ReturnCode SetRoundTime(long a_roundTime) {
+        if (a_roundTime != NO_CLOCK && a_roundTime < MIN_MOVE_TIME) {
+            return Codes.ReturnCode.INVALID_SEARCH;
+        }
+        m_roundTime = a_roundTime;
+        ResetClock();
+        return Codes.ReturnCode.SUCCESS;
+    }
+
+    /**
+     * To give back the whole round clock, should be called at the start of a new round
+     */
+    public void ResetClock() {
+        m_remaining = m_roundTime;
+    }
+
+    /**
+     * To start timing a move, setting its deadlines
+     */
+    /*
+    Algorithm:
+        1) The budget is the per-move time, or a share of the clock left if smaller
+        2) Keep back a little for stopping, that is the hard deadline
+        3) The soft deadline is SOFT_PERCENT of the way to the hard deadline
+     */
+    public void StartMove() {
+        long budget = m_moveTime;
+        if (HasClock()) {
+            budget = Math.min(budget, m_remaining / MOVES_TO_GO);
+        }
+        budget = Math.max(MIN_MOVE_TIME, budget - STOP_MARGIN);
+
+        m_start = System.nanoTime();
+        m_hardDeadline = m_start + budget * NANOS_PER_MILLI;
+        m_softDeadline = m_start + budget * NANOS_PER_MILLI * SOFT_PERCENT / 100;
+    }
+
+    /**
+     * To stop timing a move, taking the time it took off the round clock
+     * @return The time the move took in milliseconds, a long
+     */
+    public long EndMove() {
+        long elapsed = (System.nanoTime() - m_start) / NANOS_PER_MILLI;
+        if (HasClock()) {
+            m_remaining = Math.max(0, m_remaining - elapsed);
+        }
+        m_softDeadline = Long.MAX_VALUE;
+        m_hardDeadline = Long.MAX_VALUE;
+        return elapsed;
+    }
+
+
+    /* Main for Debug */
+    public static void main(String[] args) { }
+
+
+    /* Public Utility Functions */
+
+    /**
+     * To copy the time control, e.g. for a copy of its player, so timing a move
+     *     with one doesn't take from the other's round clock
+     * @return A copy of the time control, a TimeControl object
+     */
+    @NonNull
+    @Override
+    public TimeControl clone() {
+        // Only primitives, so a shallow copy is a deep one
+        try { return (TimeControl) super.clone(); }
+        // TimeControl is Cloneable, so this can never happen
+        catch (CloneNotSupportedException e) { throw new AssertionError(e); }
+    }
+
+}
@@ -0,0 +1,243 @@
+//
+//  Transposition table - remembers searched positions by Zobrist key, stored off the heap
+//
+
+package edu.ramapo.rpodziel.pente.model;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public class TranspositionTable {
+    /* Class Constants */
+
+    public static final int DEFAULT_SIZE_MB = 32;
+    public static final int MIN_SIZE_MB = 1;
+    // A ByteBuffer is indexed by an int, so it can't be any larger
+    public static final int MAX_SIZE_MB = 1024;
+
+    // What the score stored for a position means
+    public static final int BOUND_EXACT = 1;
+    public static final int BOUND_LOWER = 2;
+    public static final int BOUND_UPPER = 3;
+
+    // Returned by Probe if the position isn't stored
+    public static final long NO_ENTRY = 0;
+
+    private static final long BYTES_PER_MB = 1024L * 1024L;
+
+    // Each entry is 8 bytes of key followed by 8 bytes of data packed as:
+    // score (32 bits), depth (8 bits), bound (2 bits), cell + 1 (10 bits), set bit
+    // The key is stored XORed with the data. Threads share the table without locks,
+    // so a probe may read the key of one store and the data of another. The XOR
+    // then gives back a different key, and the entry is treated as not stored.
+    private static final int ENTRY_BYTES = 16;
+    private static final int KEY_OFFSET = 0;
+    private static final int DATA_OFFSET = 8;
+    // Two entries per bucket: the first kept for the deepest search, the second always replaced
+    private static final int BUCKET_BYTES = 2 * ENTRY_BYTES;
+
+    private static final int SCORE_BITS = 32;
+    private static final int DEPTH_SHIFT = SCORE_BITS;
+    private static final int DEPTH_BITS = 8;
+    private static final int BOUND_SHIFT = DEPTH_SHIFT + DEPTH_BITS;
+    private static final int BOUND_BITS = 2;
+    private static final int CELL_SHIFT = BOUND_SHIFT + BOUND_BITS;
+    private static final int CELL_BITS = 10;
+    private static final int SET_SHIFT = CELL_SHIFT + CELL_BITS;
+
+
+    /* Private Members */
+
+    // Allocated outside the Java heap, so even a large table is never scanned by the GC
+    private final ByteBuffer m_buckets;
+    private final int m_numBuckets;
+
+    // Not atomic, counts may miss a few updates when threads share the table
+    private long m_hits;
+    private long m_misses;
+    // Stores that replaced another position sharing the bucket
+    private long m_collisions;
+
+
+    /* Constructors */
+
+    /**
+     * @param a_sizeMB an integer. The size of the table in megabytes, rounded down
+     *           to a power of 2 buckets and clamped to MIN_SIZE_MB and MAX_SIZE_MB
+     */
+    public TranspositionTable(int a_sizeMB) {
+        long bytes = Math.max(MIN_SIZE_MB, Math.min(a_sizeMB, MAX_SIZE_MB)) * BYTES_PER_MB;
+        // Power of 2 buckets so a key picks a bucket with a mask
+        int numBuckets = Integer.highestOneBit((int) Math.min(bytes / BUCKET_BYTES, Integer.MAX_VALUE / BUCKET_BYTES));
+
+        m_numBuckets = numBuckets;
+        m_buckets = ByteBuffer.allocateDirect(numBuckets * BUCKET_BYTES).order(ByteOrder.nativeOrder());
+        m_hits = 0;
+        m_misses = 0;
+        m_collisions = 0;
+    }
+
+    public TranspositionTable() {
+        this(DEFAULT_SIZE_MB);
+    }
+
+
+    /* Accessors */
+
+    /**
+     * To get the size of the table
+     * @return The number of bytes the table takes, an integer
+     */
+    public int GetSizeBytes() {
+        return m_numBuckets * BUCKET_BYTES;
+    }
+
+    public long GetHits() {
+        return m_hits;
+    }
+
+    public long GetMisses() {
+        return m_misses;
+    }
+
+    public long GetCollisions() {
+        return m_collisions;
+    }
+
+    /**
+     * To look up a position in the table
+     * @param a_key a long. The Zobrist key of the position
+     * @return The packed data of the position, NO_ENTRY if it isn't stored.
+     *     Read it with GetScore, GetDepth, GetBound and GetCell
+     */
+    public long Probe(long a_key) {
+        int bucket = BucketOffset(a_key);
+        for (int entry = bucket; entry < bucket + BUCKET_BYTES; entry += ENTRY_BYTES) {
+            long data = m_buckets.getLong(entry + DATA_OFFSET);
+            if (data != NO_ENTRY && (m_buckets.getLong(entry + KEY_OFFSET) ^ data) == a_key) {
+                m_hits++;
+                return data;
+            }
+        }
+        m_misses++;
+        return NO_ENTRY;
+    }
+
+
+    /* Mutators */
+
+    /**
+     * To store the result of searching a position
+     * @param a_key a long. The Zobrist key of the position
+     * @param a_score an integer. The score of the position
+     * @param a_depth an integer. The depth the position was searched to
+     * @param a_bound an integer. What the score means, e.g. BOUND_EXACT
+     * @param a_cell an integer. The best move found, Board.NO_CELL if none
+     */
+    /*
+    Algorithm:
+        1) If the position is already in the bucket, replace it there
+        2) Otherwise, keep it in the first entry if it was searched at least as
+            deep as what is there, else in the second entry
+        3) Write the key XORed with the data, see ENTRY_BYTES
+     */
+    public void Store(long a_key, int a_score, int a_depth, int a_bound, int a_cell) {
+        long data = Pack(a_score, a_depth, a_bound, a_cell);
+        int first = BucketOffset(a_key);
+        int second = first + ENTRY_BYTES;
+
+        long firstData = m_buckets.getLong(first + DATA_OFFSET);
+        long secondData = m_buckets.getLong(second + DATA_OFFSET);
+
+        int entry;
+        long replaced;
+        if ((m_buckets.getLong(first + KEY_OFFSET) ^ firstData) == a_key) {
+            entry = first;
+            replaced = NO_ENTRY;
+        }
+        else if ((m_buckets.getLong(second + KEY_OFFSET) ^ secondData) == a_key) {
+            entry = second;
+            replaced = NO_ENTRY;
+        }
+        else if (a_depth >= GetDepth(firstData)) {
+            entry = first;
+            replaced = firstData;
+        }
+        else {
+            entry = second;
+            replaced = secondData;
+        }
+
+        if (replaced != NO_ENTRY) {
+            m_collisions++;
+        }
+        m_buckets.putLong(entry + KEY_OFFSET, a_key ^ data);
+        m_buckets.putLong(entry + DATA_OFFSET, data);
+    }
+
+    /**
+     * To remove every position from the table and reset the counters
+     */
+    public void Clear() {
+        for (int offset = 0; offset < GetSizeBytes(); offset += Long.SIZE / Byte.SIZE) {
+            m_buckets.putLong(offset, NO_ENTRY);
+        }
+        m_hits = 0;
+        m_misses = 0;
+        m_collisions = 0;
+    }
+
+
+    /* Main for Debug */
+    public static void main(String[] args) { }
+
+
+    /* Public Utility Functions */
+
+    public static int GetScore(long a_data) {
+        return (int) a_data;
+    }
+
+    public static int GetDepth(long a_data) {
+        return (int) (a_data >>> DEPTH_SHIFT) & ((1 << DEPTH_BITS) - 1);
+    }
+
+    public static int GetBound(long a_data) {
+        return (int) (a_data >>> BOUND_SHIFT) & ((1 << BOUND_BITS) - 1);
+    }
+
+    /**
+     * To get the best move stored for a position
+     * @param a_data a long. The packed data from Probe
+     * @return The cell of the best move, Board.NO_CELL if there was none
+     */
+    public static int GetCell(long a_data) {
+        return (int) ((a_data >>> CELL_SHIFT) & ((1 << CELL_BITS) - 1)) - 1;
+    }
+
+
+    /* Private Utility Functions */
+
+    /**
+     * To pack the data of an entry into a long, see ENTRY_BYTES
+     * @return The packed data, never NO_ENTRY
+     */
+    private static long Pack(int a_score, int a_depth, int a_bound, int a_cell) {
+        return (a_score & 0xFFFFFFFFL)
+                | ((long) Math.min(a_depth, (1 << DEPTH_BITS) - 1) << DEPTH_SHIFT)
+                | ((long) a_bound << BOUND_SHIFT)
+                | ((long) (a_cell + 1) << CELL_SHIFT)
+                | (1L << SET_SHIFT);
+    }
+
+    /**
+     * To get where the bucket of a key starts in the buffer
+     * @param a_key a long. The Zobrist key of the position
+     * @return The byte offset of the bucket, an integer
+     */
+    private int BucketOffset(long a_key) {
+        // Low bits of the key pick the bucket, the whole key is checked on a probe
+        return (int) (a_key & (m_numBuckets - 1)) * BUCKET_BYTES;
+    }
+
+}
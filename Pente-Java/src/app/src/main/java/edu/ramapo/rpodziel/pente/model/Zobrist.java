@@ -0,0 +1,53 @@
+//
+//  Zobrist keys - random 64 bit keys used to hash a board position
+//
+
+package edu.ramapo.rpodziel.pente.model;
+
+import java.util.Random;
+
+public class Zobrist {
+    /* Class Constants */
+
+    // Fixed seed so the same position always hashes to the same key, e.g. across
+    // app launches or in a saved opening book
+    public static final long SEED = 0x50454E5445L;
+
+    public static final int NUM_CELLS = Board.NUM_CELLS;
+    // Every stone on the board could be captured at most once, plus a count of 0
+    public static final int MAX_CAPTURES = NUM_CELLS / Board.CAPTURE_NUM + 1;
+
+    // Key for a stone on a cell, indexed by the stone code then cell
+    static final long[][] STONE_KEYS = new long[Board.BLACK_STONE + 1][NUM_CELLS];
+    // Key for the number of pairs captured by a player, indexed by the stone code then count
+    static final long[][] CAPTURE_KEYS = new long[Board.BLACK_STONE + 1][MAX_CAPTURES];
+    // Key for the bounds restriction, indexed by the distance from center
+    static final long[] INNER_BOUNDS_KEYS = new long[Board.BOARD_SIZE + 1];
+    static final long[] OUTER_BOUNDS_KEYS = new long[Board.BOARD_SIZE + 1];
+    // Key folded in when black is the next to move
+    static final long BLACK_TO_MOVE_KEY;
+
+    static {
+        Random random = new Random(SEED);
+        for (byte stone = Board.WHITE_STONE; stone <= Board.BLACK_STONE; stone++) {
+            for (int cell = 0; cell < NUM_CELLS; cell++) {
+                STONE_KEYS[stone][cell] = random.nextLong();
+            }
+            for (int count = 0; count < MAX_CAPTURES; count++) {
+                CAPTURE_KEYS[stone][count] = random.nextLong();
+            }
+        }
+        for (int distance = 0; distance <= Board.BOARD_SIZE; distance++) {
+            INNER_BOUNDS_KEYS[distance] = random.nextLong();
+            OUTER_BOUNDS_KEYS[distance] = random.nextLong();
+        }
+        BLACK_TO_MOVE_KEY = random.nextLong();
+    }
+
+    Zobrist() {}
+
+
+    /* Main for Debug */
+    public static void main(String[] args) { }
+
+}
@@ -6,6 +6,8 @@ package edu.ramapo.rpodziel.pente.viewcontrol;
 
 import android.app.Activity;
 import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.graphics.Color;
 import android.os.Bundle;
 import android.view.Gravity;
 import android.view.View;
@@ -17,25 +19,43 @@ import android.widget.TextView;
 import androidx.constraintlayout.widget.ConstraintLayout;
 import androidx.core.content.res.ResourcesCompat;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Objects;
 import java.util.Vector;
 
 import edu.ramapo.rpodziel.pente.model.Board;
+import edu.ramapo.rpodziel.pente.model.BoardSnapshot;
+import edu.ramapo.rpodziel.pente.model.Codes;
 import edu.ramapo.rpodziel.pente.model.GameLog;
+import edu.ramapo.rpodziel.pente.model.HintMap;
+import edu.ramapo.rpodziel.pente.model.OpeningBook;
 import edu.ramapo.rpodziel.pente.model.Player;
 import edu.ramapo.rpodziel.pente.model.Round;
+import edu.ramapo.rpodziel.pente.model.RoundWorker;
+import edu.ramapo.rpodziel.pente.model.SearchEngine;
 
 public class MainActivity extends Activity {
 
     /* Class Constants */
 
     public static final int TEXT_SIZE = 20;
+    // Opacity of the best cells' shading on the hint map, the rest are scaled down from it
+    public static final int HINT_MAX_ALPHA = 160;
+    // Bytes copied at a time when copying the opening book out of the assets
+    public static final int COPY_BUFFER_SIZE = 8192;
     // Stores the round object as private field as to not have to pass it around in
 
 
     /* Class Variables */
 
     private static Round m_round;
+    // Makes the plies and finds hints, so the computer never thinks on the UI thread
+    // The round is only read here once the worker isn't busy
+    private RoundWorker m_worker;
 
 
     /* Control Functions */
@@ -48,23 +68,55 @@ public class MainActivity extends Activity {
      */
     /*
     Algorithm:
-        1) Get round from intent
-        2) Start the round and log it
-        3) Generate the round display
+        1) Load the opening book shipped with the app, if it isn't loaded yet
+        2) Get round from intent
+        3) Start the round and log it, and the worker that makes its plies
+        4) Generate the round display
      */
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
+        // Without a book the computer searches its opening moves like any other
+        if (!OpeningBook.GetDefault().IsLoaded()) {
+            LoadOpeningBook();
+        }
+
         // Start up the round
         m_round = (Round) Objects.requireNonNull(getIntent().getSerializableExtra("ROUND"));
         GameLog.AddMessage("Round started!");
         m_round.Start();
+        m_worker = new RoundWorker(m_round);
 
         GenerateRoundDisplay();
     }
 
+    /**
+     * Cancel the computer's ply or hint and stop it thinking on the user's time,
+     *     the user isn't playing. The ply is made again with the step button.
+     */
+    @Override
+    protected void onPause() {
+        super.onPause();
+        if (m_worker != null) {
+            m_worker.Cancel();
+            m_worker.StopPondering();
+        }
+    }
+
+    /**
+     * Cancel anything the computer is doing and let the worker's thread end.
+     */
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (m_worker != null) {
+            m_worker.Shutdown();
+            m_worker = null;
+        }
+    }
+
     /**
      * Do nothing, user started a game, going back could end up breaking the game.
      */
@@ -76,6 +128,10 @@ public class MainActivity extends Activity {
      * @param a_view The view that was clicked, the quit button.
      */
     public void Quit(View a_view) {
+        // The round can't be read while a ply is being made
+        if (m_worker.IsBusy()) {
+            return;
+        }
         // User decided to quit instead of playing another, end the tournament
         Intent intent = new Intent(this, EndTournamentActivity.class);
         intent.putExtra("ROUND", m_round);
@@ -86,6 +142,10 @@ public class MainActivity extends Activity {
      * Play another round, go to the another round activity.
      */
     public void PlayAgain(View a_view) {
+        // The round can't be read while a ply is being made
+        if (m_worker.IsBusy()) {
+            return;
+        }
         // User wants to play another round, reset the board and start a new round
         Intent intent = new Intent(this, AnotherRoundActivity.class);
         intent.putExtra("ROUND", m_round);
@@ -97,6 +157,10 @@ public class MainActivity extends Activity {
      * @param a_view The view that was clicked, the save button.
      */
     public void SaveGame(View a_view) {
+        // The round can't be read while a ply is being made
+        if (m_worker.IsBusy()) {
+            return;
+        }
         // User wants to save the game, go to the save activity so they can
         Intent intent = new Intent(this, SerializeActivity.class);
         intent = intent.putExtra("ROUND", m_round);
@@ -109,23 +173,204 @@ public class MainActivity extends Activity {
      */
     /*
     Algorithm:
-        1) Get the help from the computer
+        1) Ask the worker for the help, off the UI thread
+        2) Remove clicks from the help button so user doesn't press it again
+        3) Show the computer is thinking until the help is found
+        4) Display the help once found, see DisplayHelp
+        5) Then score every move at once, shading the board with it, see DisplayHintMap
+     */
+    public void GetHelp(View a_view) {
+        // The round can't be read while a ply is being made
+        if (m_worker.IsBusy()) {
+            return;
+        }
+        final String name = m_round.GetCurrentPlayer().GetNameAndColor();
+        Codes.ReturnCode status = m_worker.GetHelp(new RoundWorker.Callback<Player.ComputerMove>() {
+            @Override
+            public void OnProgress(final SearchEngine.Result a_progress) {
+                runOnUiThread(() -> DisplayThinking(name, a_progress));
+            }
+
+            @Override
+            public void OnDone(Player.ComputerMove a_help) {
+                runOnUiThread(() -> {
+                    DisplayHelp(a_help);
+                    GetHintMap(a_help);
+                });
+            }
+
+            @Override
+            public void OnCancelled() {
+                runOnUiThread(() -> GenerateRoundDisplay());
+            }
+
+            @Override
+            public void OnFailed(Throwable a_failure) {
+                runOnUiThread(() -> DisplayFailure(a_failure));
+            }
+        });
+        if (status != Codes.ReturnCode.SUCCESS) {
+            return;
+        }
+
+        // Remove clicks from the help button so user doesn't press it again
+        a_view.setClickable(false);
+        DisplayThinking(name, null);
+    }
+
+    /**
+     * Place a stone on the board, facilitate the ply and update the display.
+     * @param a_view The view that was clicked, the board button.
+     */
+    /*
+    Algorithm:
+        1) Get the tag of the button that was clicked
+        2) Facilitate the ply on the worker, off the UI thread
+        3) Show the computer is thinking until the ply is made
+        4) Refresh the display
+        5) If the game is over, display the winner
+     */
+    public void PlaceStone(View a_view) {
+        // Get the tag of the button that was clicked
+        Object buttonPressed = a_view.getTag();
+        String position = "step";
+        if (buttonPressed != null) {
+            position = buttonPressed.toString();
+        }
+
+        // The round can't be read while a ply is being made
+        if (m_worker.IsBusy()) {
+            return;
+        }
+        final String name = m_round.GetCurrentPlayer().GetNameAndColor();
+        Codes.ReturnCode status = m_worker.FacilitatePly(position, new RoundWorker.Callback<Boolean>() {
+            @Override
+            public void OnProgress(final SearchEngine.Result a_progress) {
+                runOnUiThread(() -> DisplayThinking(name, a_progress));
+            }
+
+            @Override
+            public void OnDone(Boolean a_isGameOver) {
+                runOnUiThread(() -> {
+                    // Refresh the display
+                    GenerateRoundDisplay();
+                    // Game is over, display the winner
+                    if (a_isGameOver) {
+                        DisplayRoundEnd(m_round.GetRoundWinner());
+                    }
+                });
+            }
+
+            @Override
+            public void OnCancelled() {
+                runOnUiThread(() -> GenerateRoundDisplay());
+            }
+
+            @Override
+            public void OnFailed(Throwable a_failure) {
+                runOnUiThread(() -> DisplayFailure(a_failure));
+            }
+        });
+        if (status == Codes.ReturnCode.SUCCESS) {
+            DisplayThinking(name, null);
+        }
+    }
+
+
+    /**
+     * Score every move for the player getting help and shade the board with it.
+     * @param a_help The move the computer recommends, left as the green stone.
+     */
+    /*
+    Algorithm:
+        1) Ask the worker for the scores, all found in one pass off the UI thread
+        2) Shade the board once found, unless a ply was made since, see DisplayHintMap
+     */
+    private void GetHintMap(final Player.ComputerMove a_help) {
+        final BoardSnapshot board = m_round.GetBoardSnapshot();
+        m_worker.GetHintMap(new RoundWorker.Callback<HintMap>() {
+            @Override
+            public void OnProgress(final SearchEngine.Result a_progress) { }
+
+            @Override
+            public void OnDone(HintMap a_map) {
+                runOnUiThread(() -> {
+                    // The display was regenerated for the ply, the scores are stale
+                    if (m_round.GetBoardSnapshot() == board) {
+                        DisplayHintMap(a_map, a_help);
+                    }
+                });
+            }
+
+            @Override
+            public void OnCancelled() { }
+
+            @Override
+            public void OnFailed(Throwable a_failure) {
+                runOnUiThread(() -> DisplayFailure(a_failure));
+            }
+        });
+    }
+
+
+    /* Private Utility Functions */
+
+    /**
+     * Load the opening book shipped in the app's assets. Only a file can be memory
+     *     mapped, so it is copied to the app's files first, again after each update.
+     */
+    /*
+    Algorithm:
+        1) Copy the book out of the assets if there is no copy, or the app is newer than it
+        2) Copy to a temporary file first, so a copy cut short is never loaded
+        3) Load the copy, the computer searches instead if anything went wrong
+     */
+    private void LoadOpeningBook() {
+        File book = new File(getFilesDir(), OpeningBook.FILE_NAME);
+        try {
+            long updated = getPackageManager().getPackageInfo(getPackageName(), 0).lastUpdateTime;
+            if (!book.exists() || book.lastModified() < updated) {
+                File copy = new File(getFilesDir(), OpeningBook.FILE_NAME + ".tmp");
+                try (InputStream input = getAssets().open(OpeningBook.FILE_NAME);
+                     OutputStream output = new FileOutputStream(copy)) {
+                    byte[] buffer = new byte[COPY_BUFFER_SIZE];
+                    for (int read = input.read(buffer); read > 0; read = input.read(buffer)) {
+                        output.write(buffer, 0, read);
+                    }
+                }
+                if (!copy.renameTo(book)) {
+                    return;
+                }
+            }
+        }
+        catch (IOException | PackageManager.NameNotFoundException e) {
+            return;
+        }
+        OpeningBook.GetDefault().Load(book);
+    }
+
+
+    /* View Functions */
+
+    /**
+     * Display the help from the computer and highlight the best move.
+     * @param a_help The move the computer recommends.
+     */
+    /*
+    Algorithm:
+        1) Refresh the display, the turn text showed the computer thinking
         2) Set the help to what computer suggested
         3) Set the visibility of the help header so user can see it
         4) Get the tag of the best move, so we can highlight it
         5) Remove clicks from the help button so user doesn't press it again
-        6) Append help to the log
      */
-    public void GetHelp(View a_view) {
-        // Get the help from the computer
-        Player.ComputerMove help = m_round.GetCurrentPlayer().GetHelp(
-                m_round.GetRoundBoard(),
-                m_round.GetNextPlayer()
-        );
+    private void DisplayHelp(Player.ComputerMove a_help) {
+        // Refresh the display, also appending the help to the log
+        GenerateRoundDisplay();
 
         // Set the help to what computer suggested
         TextView helpView = findViewById(R.id.M_help_text);
-        String helpText = help.formattedReason + "\n\nIndicated by the green stone!";
+        String helpText = a_help.formattedReason + "\n\nIndicated by the green stone!";
         helpView.setText(helpText);
         helpView.setVisibility(View.VISIBLE);
 
@@ -134,48 +379,101 @@ public class MainActivity extends Activity {
         helpViewHeader.setVisibility(View.VISIBLE);
 
         // Get the tag of the best move, so we can highlight it
-        Button bestMoveButton = findViewById(R.id.M_button_container).findViewWithTag(help.position);
+        Button bestMoveButton = findViewById(R.id.M_button_container).findViewWithTag(a_help.position);
         bestMoveButton.setBackground(ResourcesCompat.getDrawable(
                 getResources(),
                 R.drawable.green_stone,
                 null)
         );
         // Remove clicks from the help button so user doesn't press it again
-        a_view.setClickable(false);
-        // Append help to the log
-        AppendCurrentLog();
+        Button helpButton = findViewById(R.id.M_help);
+        helpButton.setClickable(false);
     }
 
     /**
-     * Place a stone on the board, facilitate the ply and update the display.
-     * @param a_view The view that was clicked, the board button.
+     * Shade the board as a heat map of every move's score, and number the best moves.
+     * @param a_map The score of every move, for the player and their opponent.
+     * @param a_help The move the computer recommends, already shown by DisplayHelp.
      */
     /*
     Algorithm:
-        1) Get the tag of the button that was clicked
-        2) Facilitate the ply
-        3) Refresh the display
-        4) If the game is over, display the winner
+        1) Shade each cell that can be played by its score over the best score,
+            green if it is better for the player than it stops, red otherwise
+        2) Number the best moves other than the green stone on the board
+        3) Add them to the help text
      */
-    public void PlaceStone(View a_view) {
-        // Get the tag of the button that was clicked
-        Object buttonPressed = a_view.getTag();
-        String position = "step";
-        if (buttonPressed != null) {
-            position = buttonPressed.toString();
+    private void DisplayHintMap(HintMap a_map, Player.ComputerMove a_help) {
+        FrameLayout buttons = findViewById(R.id.M_button_container);
+        final int MAX_SCORE = Math.max(1, a_map.GetMaxScore());
+        for (int cell = 0; cell < Board.NUM_CELLS; cell++) {
+            final String POSITION = Board.CellToPosition(cell);
+            if (a_map.GetScore(cell) == HintMap.NO_SCORE || POSITION.equals(a_help.position)) {
+                continue;
+            }
+            int alpha = HINT_MAX_ALPHA * Math.max(0, a_map.GetScore(cell)) / MAX_SCORE;
+            int color = a_map.GetOurScore(cell) >= a_map.GetTheirScore(cell)
+                    ? Color.argb(alpha, 0, 160, 0)
+                    : Color.argb(alpha, 200, 0, 0);
+            buttons.findViewWithTag(POSITION).setBackgroundColor(color);
         }
 
-        boolean isGameOver = m_round.FacilitatePly(position);
-        // Refresh the display
-        GenerateRoundDisplay();
-        // Game is over, display the winner
-        if (isGameOver) {
-            DisplayRoundEnd(m_round.GetRoundWinner());
+        // The green stone is the best move, so get one more in case it is among them
+        StringBuilder others = new StringBuilder();
+        int number = 1;
+        for (int cell : a_map.GetTopCells(HintMap.DEFAULT_TOP_MOVES + 1)) {
+            final String POSITION = Board.CellToPosition(cell);
+            if (POSITION.equals(a_help.position) || number > HintMap.DEFAULT_TOP_MOVES) {
+                continue;
+            }
+            Button button = buttons.findViewWithTag(POSITION);
+            button.setText(String.valueOf(number));
+            others.append(number == 1 ? "" : ", ").append(POSITION);
+            number++;
+        }
+
+        if (others.length() > 0) {
+            TextView helpView = findViewById(R.id.M_help_text);
+            String helpText = helpView.getText() + "\nOther good moves, numbered: " + others;
+            helpView.setText(helpText);
         }
     }
 
+    /**
+     * Display that the computer is thinking, and what it is thinking so far.
+     *     Nothing can be clicked until it's done.
+     * @param a_name The name and color of the player thinking.
+     * @param a_progress The search so far, null if nothing is known yet.
+     */
+    private void DisplayThinking(String a_name, SearchEngine.Result a_progress) {
+        // Stop clicks until the worker is done, the display is regenerated then
+        FrameLayout buttons = findViewById(R.id.M_button_container);
+        for (int i = 0; i < buttons.getChildCount(); i++) {
+            buttons.getChildAt(i).setClickable(false);
+        }
+        Button stepButton = findViewById(R.id.M_step);
+        stepButton.setClickable(false);
+        Button helpButton = findViewById(R.id.M_help);
+        helpButton.setClickable(false);
+
+        TextView turn = findViewById(R.id.currentmove);
+        String turnText = a_name + "'s Turn\nThinking...";
+        if (a_progress != null && a_progress.cell != Board.NO_CELL) {
+            turnText += " depth " + a_progress.depth + ", best "
+                    + Board.CellToPosition(a_progress.cell);
+        }
+        turn.setText(turnText);
+    }
 
-    /* View Functions */
+    /**
+     * Display that the computer couldn't finish thinking, in the game log, and
+     *     let the user click again.
+     * @param a_failure What the worker threw.
+     */
+    private void DisplayFailure(Throwable a_failure) {
+        GameLog.AddMessage("The computer couldn't finish thinking: " + a_failure);
+        // Also appends the message to the log
+        GenerateRoundDisplay();
+    }
 
     /**
      * Display the winner of the round.
@@ -435,7 +733,8 @@ public class MainActivity extends Activity {
         helpButton.setClickable(requiresInput);
 
         // Generator buttons for the board
-        Vector<Vector<Character>> gameBoard = m_round.GetRoundBoard().GetGameBoard();
+        // Same snapshot for every button, nothing is copied
+        BoardSnapshot board = m_round.GetBoardSnapshot();
         for (int row = Board.BOARD_SIZE - Board.ROW_OFFSET; row >= 0; row--) {
             for (int column = 0; column < Board.BOARD_SIZE; column++) {
                 Button button = new Button(this);
@@ -446,9 +745,7 @@ public class MainActivity extends Activity {
                 // Only if you can place and requires input do we want to enable the button
                 button.setClickable(false);
 
-                // See if there is a bounds restriction
-                int distance = Board.AwayFromCenter(row, column);
-                char stone = gameBoard.get(row).get(column);
+                char stone = board.GetPiece(row, column);
 
                 // Opted not to seperate the bounds restriction and requires input into a seperate
                 // function to make everything more readable. Increases clutter but readability is better.
@@ -472,8 +769,7 @@ public class MainActivity extends Activity {
                             null)
                     );
                 }
-                else if ((m_round.GetRoundBoard().GetInnerBounds() > distance)
-                            || (distance > m_round.GetRoundBoard().GetOuterBounds())) {
+                else if (!board.IsWithinBounds(row, column)) {
                     button.setBackground(ResourcesCompat.getDrawable(
                             getResources(),
                             R.drawable.bounds_restrict,
@@ -0,0 +1,145 @@
+//
+//  Benchmark - time to depth and nodes per second of the search, with and without
+//  move ordering and for each thread count, and playouts per second of the MCTS
+//
+
+package edu.ramapo.rpodziel.pente.model;
+
+public final class Benchmark {
+    /* Class Constants */
+
+    // Fixed positions to search, the moves from an empty board with white first
+    static final String[] POSITIONS = {
+            "I12 I11 G11 H9 I13 I8",
+            "K11 G8 M13 H7 M10 L12 I9 G7",
+            "H12 K11 J7 J12 K8 H7 M8 G10 L7 L9",
+            "L12 K13 H7 J12 M8 G11 L11 J13 K12 I8 L10 G9",
+            "I10 I8 L9 L10 H7 H11 J9 L11 K11 L12 I7 H9 J10 M13",
+            "K9 G11 L8 L12 J9 K10 G13 I12 M13 I8 J11 I7 H9 M9 I13 I11"
+    };
+
+    static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16};
+    static final int DEFAULT_DEPTH = 4;
+
+    // Enough time that every position reaches the depth
+    private static final long MOVE_TIME = 10L * 60L * 1000L;
+    // Time the Monte Carlo engine plays out each position for
+    static final long PLAYOUT_TIME = 1000;
+
+    private Benchmark() {}
+
+
+    /* Main for Debug */
+
+    /**
+     * Prints the time to depth and nodes per second without and with move
+     *     ordering on one thread, then for each thread count, then the MCTS
+     *     playouts per second for each thread count
+     * @param args optionally the depth to search to, then the parallel mode
+     */
+    public static void main(String[] args) {
+        int depth = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_DEPTH;
+        SearchEngine.ParallelMode mode = (args.length > 1) ? SearchEngine.ParallelMode.valueOf(args[1])
+                : SearchEngine.DEFAULT_PARALLEL_MODE;
+
+        System.out.println("Depth " + depth + ", 1 thread");
+        System.out.println("ordering\tmillis\tnodes\tnodes/s");
+        for (boolean ordering : new boolean[] {false, true}) {
+            long[] totals = Run(1, depth, mode, ordering);
+            System.out.printf("%s\t%d\t%d\t%d%n", ordering ? "on" : "off", totals[0], totals[1],
+                    totals[1] * 1000 / Math.max(1, totals[0]));
+        }
+
+        System.out.println("Depth " + depth + ", " + mode + ", "
+                + Runtime.getRuntime().availableProcessors() + " cores");
+        System.out.println("threads\tmillis\tnodes\tnodes/s\tspeedup");
+        long baseMillis = 0;
+        for (int threads : THREAD_COUNTS) {
+            long[] totals = Run(threads, depth, mode, true);
+            if (threads == THREAD_COUNTS[0]) {
+                baseMillis = totals[0];
+            }
+            System.out.printf("%d\t%d\t%d\t%d\t%.2f%n", threads, totals[0], totals[1],
+                    totals[1] * 1000 / Math.max(1, totals[0]), (double) baseMillis / Math.max(1, totals[0]));
+        }
+
+        System.out.println("MCTS, " + PLAYOUT_TIME + " ms per position");
+        System.out.println("threads\tplayouts\tplayouts/s");
+        for (int threads : THREAD_COUNTS) {
+            MonteCarloEngine.Result totals = RunMonteCarlo(threads);
+            System.out.printf("%d\t%d\t%d%n", threads, totals.playouts, totals.GetPlayoutsPerSecond());
+        }
+    }
+
+
+    /* Public Utility Functions */
+
+    /**
+     * To search every position of the suite to a depth
+     * @param a_threads an integer. The threads to search with
+     * @param a_depth an integer. The depth to search each position to
+     * @param a_mode a ParallelMode. How the threads share the search
+     * @param a_ordering a boolean. If moves are ordered, see SearchEngine.SetMoveOrdering
+     * @return The total milliseconds and nodes, a long array of 2
+     */
+    /*
+    Algorithm:
+        1) Make a new engine for the thread count, so no position is already in the table
+        2) Search each position to the depth, adding up the time and nodes
+     */
+    public static long[] Run(int a_threads, int a_depth, SearchEngine.ParallelMode a_mode, boolean a_ordering) {
+        SearchEngine engine = new SearchEngine();
+        engine.SetMoveOrdering(a_ordering);
+        engine.SetThreads(a_threads);
+        engine.SetParallelMode(a_mode);
+        engine.SetMaxDepth(a_depth);
+        engine.SetMoveTime(MOVE_TIME);
+
+        long[] totals = new long[2];
+        for (String position : POSITIONS) {
+            Board board = ToBoard(position);
+            SearchEngine.Result result = engine.Search(board, board.GetNextColor());
+            totals[0] += result.elapsedMillis;
+            totals[1] += result.nodes;
+        }
+        engine.Shutdown();
+        return totals;
+    }
+
+    /**
+     * To play out every position of the suite with the Monte Carlo engine
+     * @param a_threads an integer. The threads to play out with
+     * @return The total milliseconds and playouts, a MonteCarloEngine.Result object
+     */
+    public static MonteCarloEngine.Result RunMonteCarlo(int a_threads) {
+        MonteCarloEngine engine = new MonteCarloEngine();
+        engine.SetThreads(a_threads);
+        engine.GetTimeControl().SetMoveTime(PLAYOUT_TIME);
+
+        MonteCarloEngine.Result totals = new MonteCarloEngine.Result();
+        for (String position : POSITIONS) {
+            Board board = ToBoard(position);
+            MonteCarloEngine.Result result = engine.Search(board, board.GetNextColor());
+            totals.elapsedMillis += result.elapsedMillis;
+            totals.playouts += result.playouts;
+        }
+        engine.Shutdown();
+        return totals;
+    }
+
+    /**
+     * To make the board for a position of the suite
+     * @param a_moves a string. The moves from an empty board, separated by spaces
+     * @return The board after the moves, a Board object
+     */
+    public static Board ToBoard(String a_moves) {
+        Board board = new Board();
+        char color = Player.WHITE_CHAR;
+        for (String move : a_moves.split(" ")) {
+            board.PlaceStone(color, move);
+            color = (color == Player.WHITE_CHAR) ? Player.BLACK_CHAR : Player.WHITE_CHAR;
+        }
+        return board;
+    }
+
+}
@@ -0,0 +1,168 @@
+//
+//  Opening book builder - searches the early positions deeply offline and writes the book
+//
+
+package edu.ramapo.rpodziel.pente.model;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+public final class OpeningBookBuilder {
+    /* Class Constants */
+
+    // Plies from an empty board to put in the book
+    static final int DEFAULT_PLIES = 6;
+    static final int DEFAULT_DEPTH = 6;
+    // Moves followed from each position, the book move first then the next best
+    static final int DEFAULT_BRANCHING = 3;
+
+    // Enough time that every position reaches the depth
+    private static final long MOVE_TIME = 10L * 60L * 1000L;
+
+
+    /* Private Members */
+
+    private final SearchEngine m_engine;
+    private final MoveOrdering m_ordering;
+    private final int m_plies;
+    private final int m_branching;
+
+    // Canonical key of each position searched, to its canonical move and depth
+    // Sorted by key, the order the book is written in
+    private final TreeMap<Long, int[]> m_entries;
+    private int m_maxStones;
+
+
+    /* Constructors */
+
+    /**
+     * @param a_plies an integer. Plies from an empty board to put in the book
+     * @param a_depth an integer. The depth to search each position to
+     * @param a_branching an integer. Moves followed from each position
+     * @param a_threads an integer. The threads to search with
+     */
+    OpeningBookBuilder(int a_plies, int a_depth, int a_branching, int a_threads) {
+        m_engine = new SearchEngine();
+        m_engine.SetMaxDepth(a_depth);
+        m_engine.SetMoveTime(MOVE_TIME);
+        m_engine.SetThreads(a_threads);
+        m_ordering = new MoveOrdering();
+        m_plies = a_plies;
+        m_branching = a_branching;
+        m_entries = new TreeMap<>();
+        m_maxStones = 0;
+    }
+
+
+    /* Main for Debug */
+
+    /**
+     * Builds the book and writes it to a file
+     * @param args optionally the plies, depth, branching, threads, then the file to write
+     */
+    public static void main(String[] args) throws IOException {
+        int plies = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_PLIES;
+        int depth = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_DEPTH;
+        int branching = (args.length > 2) ? Integer.parseInt(args[2]) : DEFAULT_BRANCHING;
+        int threads = (args.length > 3) ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        String fileName = (args.length > 4) ? args[4] : OpeningBook.FILE_NAME;
+
+        OpeningBookBuilder builder = new OpeningBookBuilder(plies, depth, branching,
+                Math.min(threads, SearchEngine.MAX_THREADS));
+        long start = System.currentTimeMillis();
+        builder.Build();
+        builder.Write(fileName);
+        System.out.println(builder.GetNumPositions() + " positions written to " + fileName + " in "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+
+
+    /* Public Utility Functions */
+
+    int GetNumPositions() {
+        return m_entries.size();
+    }
+
+    /**
+     * To search every position of the book, starting from an empty board
+     */
+    void Build() {
+        Expand(new Board(), 0);
+        m_engine.Shutdown();
+    }
+
+    /**
+     * To write the book, see OpeningBook for the format
+     * @param a_fileName a string. The file to write, replaced if it exists
+     * @throws IOException if the file can't be written
+     */
+    void Write(String a_fileName) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(a_fileName)))) {
+            out.writeInt(OpeningBook.MAGIC);
+            out.writeInt(OpeningBook.VERSION);
+            out.writeInt(m_maxStones);
+            out.writeInt(m_entries.size());
+            for (Map.Entry<Long, int[]> entry : m_entries.entrySet()) {
+                out.writeLong(entry.getKey());
+                out.writeShort(entry.getValue()[0]);
+                out.writeShort(entry.getValue()[1]);
+            }
+        }
+    }
+
+
+    /* Private Utility Functions */
+
+    /**
+     * To search a position and the positions after its best moves
+     * @param a_board a Board object. The position, restored before returning
+     * @param a_ply an integer. The plies played to reach the position
+     */
+    /*
+    Algorithm:
+        1) Stop past the last ply of the book, or once the round is over
+        2) Restrict the board as a round would, the bounds are part of the key
+        3) Skip positions already in the book, reached by a transposition or a symmetry
+        4) Search the position and store its best move, turned to the canonical symmetry
+        5) Order the moves with the best first, and expand the first few of them
+     */
+    private void Expand(Board a_board, int a_ply) {
+        if (a_ply >= m_plies || a_board.IsWinningMove() || a_board.IsBoardFull()) {
+            return;
+        }
+        Round.SetBoardRestriction(a_board, a_ply);
+
+        int[] symmetry = new int[1];
+        long key = OpeningBook.CanonicalKey(a_board, symmetry);
+        if (m_entries.containsKey(key)) {
+            return;
+        }
+
+        final char COLOR = a_board.GetNextColor();
+        SearchEngine.Result result = m_engine.Search(a_board, COLOR);
+        if (result.cell == Board.NO_CELL) {
+            return;
+        }
+        m_entries.put(key, new int[] {OpeningBook.SYMMETRY_CELLS[symmetry[0]][result.cell], result.depth});
+        m_maxStones = Math.max(m_maxStones, Board.NUM_CELLS - a_board.GetIntersectLeft());
+
+        int[] moves = new int[Board.NUM_CELLS];
+        int numMoves = a_board.GetCandidateCells(moves);
+        m_ordering.Order(a_board, moves, numMoves, result.cell, 0);
+        for (int index = 0; index < Math.min(numMoves, m_branching); index++) {
+            // A child changes the bounds, put ours back before each move
+            Round.SetBoardRestriction(a_board, a_ply);
+            if (a_board.PlaceStone(COLOR, moves[index]) != Codes.ReturnCode.SUCCESS) {
+                continue;
+            }
+            Expand(a_board, a_ply + 1);
+            a_board.UndoMove();
+        }
+    }
+
+}